@@ -0,0 +1,69 @@
+package benchmark;
+
+import consumer.ConsumerWorker;
+import model.ETaskStatus;
+import model.Task;
+import model.TaskStatusInfo;
+import org.openjdk.jmh.annotations.*;
+import prototype.MainApp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Submit-to-complete latency through ConsumerWorker
+ * Workers run with the simulated sleep and failures switched off, so the
+ * numbers cover queueing, status tracking and hand-off overhead only.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-jmh.xml")
+@State(Scope.Benchmark)
+public class EndToEndLatencyBenchmark {
+
+    @Param({"4"})
+    public int workerCount;
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void startWorkers() {
+        MainApp.initializeSharedResources();
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(new ConsumerWorker("BenchWorker-" + (i + 1), 0.0, 0),
+                    "BenchWorker-" + (i + 1));
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopWorkers() throws InterruptedException {
+        workers.forEach(Thread::interrupt);
+        for (Thread worker : workers) {
+            worker.join(5000);
+        }
+        MainApp.getRetryScheduler().shutdown();
+    }
+
+    @Benchmark
+    public ETaskStatus submitToComplete() {
+        Task task = new Task("Bench", 1, "bench");
+        // Register before offering, so a fast worker cannot complete the task ahead of SUBMITTED
+        MainApp.getStatusTracker().updateTaskStatus(task.getId(), ETaskStatus.SUBMITTED, "bench");
+        MainApp.getTaskQueue().offer(task);
+
+        while (true) {
+            TaskStatusInfo status = MainApp.getStatusTracker().getTaskStatus(task.getId());
+            if (status != null && (status.getStatus() == ETaskStatus.COMPLETED
+                    || status.getStatus() == ETaskStatus.FAILED)) {
+                return status.getStatus();
+            }
+            Thread.yield();
+        }
+    }
+}
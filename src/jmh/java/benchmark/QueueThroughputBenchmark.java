@@ -0,0 +1,73 @@
+package benchmark;
+
+import model.Task;
+import org.openjdk.jmh.annotations.*;
+import queue.OffHeapTaskQueue;
+import queue.PriorityTaskQueue;
+import queue.StripedTaskQueue;
+import queue.TaskQueue;
+import queue.TaskSlabStore;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offer/poll throughput of the task queues with N producers and M consumers
+ * Thread counts per group can be changed on the command line, e.g. -tg 16,16
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-jmh.xml")
+@State(Scope.Group)
+public class QueueThroughputBenchmark {
+
+    private static final int TASK_POOL_SIZE = 4096;
+    private static final int MAX_BACKLOG = 100_000;
+
+    @Param({"priority", "striped", "offheap"})
+    public String queueType;
+
+    private TaskQueue queue;
+    private Task[] tasks;
+
+    @Setup(Level.Trial)
+    public void createTasks() {
+        tasks = new Task[TASK_POOL_SIZE];
+        for (int i = 0; i < TASK_POOL_SIZE; i++) {
+            tasks[i] = new Task("Bench-" + i, 1 + (i % 5), "bench");
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void createQueue() {
+        queue = switch (queueType) {
+            case "striped" -> new StripedTaskQueue();
+            case "offheap" -> new OffHeapTaskQueue(new TaskSlabStore());
+            default -> new PriorityTaskQueue();
+        };
+    }
+
+    @State(Scope.Thread)
+    public static class ProducerState {
+        int next;
+    }
+
+    @Benchmark
+    @Group("offerPoll")
+    @GroupThreads(4)
+    public boolean offer(ProducerState producer) {
+        // Check the backlog only now and then, so the size() call does not dominate the measurement
+        if ((producer.next & 1023) == 0 && queue.size() > MAX_BACKLOG) {
+            Thread.yield();
+        }
+        return queue.offer(tasks[producer.next++ & (TASK_POOL_SIZE - 1)]);
+    }
+
+    @Benchmark
+    @Group("offerPoll")
+    @GroupThreads(4)
+    public Task poll() {
+        return queue.poll();
+    }
+}
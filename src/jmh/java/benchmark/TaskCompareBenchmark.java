@@ -0,0 +1,42 @@
+package benchmark;
+
+import model.Task;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of Task.compareTo, for both the priority path and the timestamp tie-break
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-jmh.xml")
+@State(Scope.Thread)
+public class TaskCompareBenchmark {
+
+    private Task highPriority;
+    private Task lowPriority;
+    private Task samePriorityEarlier;
+    private Task samePriorityLater;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        highPriority = new Task("High", 1, "bench");
+        lowPriority = new Task("Low", 5, "bench");
+        samePriorityEarlier = new Task("Earlier", 3, "bench");
+        Thread.sleep(1);
+        samePriorityLater = new Task("Later", 3, "bench");
+    }
+
+    @Benchmark
+    public int differentPriority() {
+        return highPriority.compareTo(lowPriority);
+    }
+
+    @Benchmark
+    public int samePriorityTieBreak() {
+        return samePriorityEarlier.compareTo(samePriorityLater);
+    }
+}
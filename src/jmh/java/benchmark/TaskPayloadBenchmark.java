@@ -0,0 +1,51 @@
+package benchmark;
+
+import model.TaskPayload;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading two fields of a payment payload: typed in-place reads versus re-tokenizing the "k=v" text
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-jmh.xml")
+@State(Scope.Thread)
+public class TaskPayloadBenchmark {
+
+    private TaskPayload payload;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        payload = TaskPayload.builder()
+                .putLong("payment_id", 1042)
+                .putDecimal("amount", 523.40, 2)
+                .putString("type", "credit_card")
+                .build();
+        text = "payment_id=1042,amount=523.40,type=credit_card";
+    }
+
+    @Benchmark
+    public double typedRead() {
+        return payload.getLong("payment_id") + payload.getDouble("amount");
+    }
+
+    @Benchmark
+    public double parseText() {
+        long paymentId = 0;
+        double amount = 0;
+        for (String field : text.split(",")) {
+            String[] keyValue = field.split("=", 2);
+            switch (keyValue[0]) {
+                case "payment_id" -> paymentId = Long.parseLong(keyValue[1]);
+                case "amount" -> amount = Double.parseDouble(keyValue[1]);
+                default -> { }
+            }
+        }
+        return paymentId + amount;
+    }
+}
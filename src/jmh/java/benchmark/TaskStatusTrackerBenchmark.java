@@ -0,0 +1,63 @@
+package benchmark;
+
+import model.ETaskStatus;
+import org.openjdk.jmh.annotations.*;
+import service.TaskStatusTracker;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TaskStatusTracker transitions under contention, 16 threads by default (override with -t)
+ * - updateTaskStatus: threads move a shared pool of live tasks between SUBMITTED and PROCESSING
+ * - failedAttempt: the retry path of a failed attempt, retry count bump and error, then back to PROCESSING
+ *
+ * Threads only contend when they run in parallel: on a single CPU this measures the per-update cost
+ * (allocation, CAS, counters), not contention, so compare implementations on a multi-core machine.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-jmh.xml")
+@Threads(16)
+@State(Scope.Benchmark)
+public class TaskStatusTrackerBenchmark {
+
+    private static final int TASK_COUNT = 1 << 14;
+
+    private TaskStatusTracker tracker;
+    private UUID[] taskIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tracker = new TaskStatusTracker();
+        taskIds = new UUID[TASK_COUNT];
+        for (int i = 0; i < TASK_COUNT; i++) {
+            taskIds[i] = UUID.randomUUID();
+            tracker.updateTaskStatus(taskIds[i], ETaskStatus.SUBMITTED, "setup");
+            tracker.updateTaskStatus(taskIds[i], ETaskStatus.PROCESSING, "setup");
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class WorkerState {
+        int next = (int) (Thread.currentThread().threadId() * 7919);
+        final String threadName = Thread.currentThread().getName();
+    }
+
+    @Benchmark
+    public void updateTaskStatus(WorkerState worker) {
+        int index = worker.next++ & (TASK_COUNT - 1);
+        ETaskStatus status = (worker.next & 1) == 0 ? ETaskStatus.PROCESSING : ETaskStatus.SUBMITTED;
+        tracker.updateTaskStatus(taskIds[index], status, worker.threadName);
+    }
+
+    @Benchmark
+    public void failedAttempt(WorkerState worker) {
+        UUID taskId = taskIds[worker.next++ & (TASK_COUNT - 1)];
+        tracker.incrementRetryCount(taskId, worker.threadName);
+        tracker.updateTaskStatusWithError(taskId, ETaskStatus.RETRYING, worker.threadName, "network timeout");
+        tracker.updateTaskStatus(taskId, ETaskStatus.PROCESSING, worker.threadName);
+    }
+}
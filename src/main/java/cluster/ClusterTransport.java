@@ -0,0 +1,625 @@
+package cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import model.Task;
+import persistence.TaskCodec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Non-blocking TCP transport between cluster nodes, one selector thread per node
+ * Every node listens on its own member address and opens one outbound connection per peer, used only
+ * for sending; frames from a peer arrive on the connection it opened.
+ *
+ * Frame: length (int, of the rest) | type (byte) | sender node id (int) | body
+ * - TASKS: new work forwarded to its owner, which still has to admit it
+ *   count (int), then per task: encoded length (int) | retry count (int) | TaskCodec encoding
+ * - HANDOVER: tasks already admitted by the sender (steals), same body as TASKS
+ * - STEAL: maximum number of tasks wanted (int)
+ * - REFUSED: number of forwarded tasks the sender of this frame refused at admission (int)
+ *
+ * Senders only append to a per-peer outbox and wake the selector; the selector thread packs everything
+ * queued since its last pass into as few frames as fit, so batching grows with load.
+ * Outboxes hold at most MAX_OUTBOX_TASKS forwarded tasks, reserved with tryReserve before sending. A peer
+ * that has been unreachable for PEER_DOWN_TIMEOUT takes no new tasks, and the tasks still waiting for it
+ * are handed back to the FrameHandler so the node can run them itself.
+ * Delivery is at most once: frames buffered for a connection that breaks are dropped and counted.
+ */
+@Slf4j
+public class ClusterTransport implements Closeable {
+
+    /**
+     * Receives decoded frames on the selector thread; implementations must not block
+     * A frame that fails validation, decoding or its handler closes the connection it arrived on.
+     */
+    public interface FrameHandler {
+        /**
+         * @param admitted true for a handover of tasks the sender had admitted, false for forwarded new work
+         */
+        void onTasks(int sender, List<Task> tasks, int[] retryCounts, boolean admitted);
+
+        void onStealRequest(int sender, int maxTasks);
+
+        void onRefused(int sender, int count);
+
+        /**
+         * Tasks that were waiting for a peer unreachable past PEER_DOWN_TIMEOUT; they were never sent
+         */
+        void onUndeliverable(int peer, List<Task> tasks, int[] retryCounts, boolean admitted);
+    }
+
+    private static final byte FRAME_TASKS = 1;
+    private static final byte FRAME_STEAL = 2;
+    private static final byte FRAME_HANDOVER = 3;
+    private static final byte FRAME_REFUSED = 4;
+    private static final int FRAME_HEADER_SIZE = 4 + 1 + 4;
+    private static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+    private static final int MAX_TASKS_PER_FRAME = 256;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_OUTBOX_TASKS = 10_000;
+    private static final long RECONNECT_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final long PEER_DOWN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final long SELECT_TIMEOUT_MILLIS = 100;
+
+    private final int selfId;
+    private final List<InetSocketAddress> members;
+    private final FrameHandler handler;
+    private final Peer[] peers;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private final Thread selectorThread;
+    private volatile boolean running;
+
+    private final LongAdder tasksSent = new LongAdder();
+    private final LongAdder tasksReceived = new LongAdder();
+    private final LongAdder framesSent = new LongAdder();
+    private final LongAdder tasksDropped = new LongAdder();
+
+    public ClusterTransport(int selfId, List<InetSocketAddress> members, FrameHandler handler) throws IOException {
+        if (selfId < 0 || selfId >= members.size()) {
+            throw new IllegalArgumentException("Node id " + selfId + " is not a member index");
+        }
+        this.selfId = selfId;
+        this.members = List.copyOf(members);
+        this.handler = handler;
+        this.peers = new Peer[members.size()];
+        for (int id = 0; id < peers.length; id++) {
+            if (id != selfId) {
+                peers[id] = new Peer(id, members.get(id));
+            }
+        }
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        server.bind(members.get(selfId));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        this.selectorThread = new Thread(this::runSelector, "ClusterSelector-" + selfId);
+        selectorThread.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        selectorThread.start();
+        log.info("Cluster node {} listening on {}, {} peers", selfId, members.get(selfId), peers.length - 1);
+    }
+
+    public int getSelfId() {
+        return selfId;
+    }
+
+    public int getClusterSize() {
+        return members.size();
+    }
+
+    /**
+     * Reserves an outbox slot for one forwarded task
+     * @return false if the peer's outbox is full or the peer has been unreachable past PEER_DOWN_TIMEOUT
+     */
+    public boolean tryReserve(int peer) {
+        Peer target = peers[peer];
+        if (target.isDown(System.nanoTime())) {
+            return false;
+        }
+        int queued;
+        do {
+            queued = target.outboxSize.get();
+            if (queued >= MAX_OUTBOX_TASKS) {
+                return false;
+            }
+        } while (!target.outboxSize.compareAndSet(queued, queued + 1));
+        return true;
+    }
+
+    /**
+     * Gives back a slot reserved with tryReserve that will not be used
+     */
+    public void release(int peer) {
+        peers[peer].outboxSize.decrementAndGet();
+    }
+
+    /**
+     * Forwards new work to its owner, which applies its own admission control; needs a slot from tryReserve
+     */
+    public void sendTask(int peer, Task task, int retryCount) {
+        peers[peer].outbox.add(new Outgoing(task, retryCount, false));
+        wakeup();
+    }
+
+    /**
+     * Whether a peer is reachable, or has not been unreachable for longer than PEER_DOWN_TIMEOUT
+     */
+    public boolean isAvailable(int peer) {
+        return !peers[peer].isDown(System.nanoTime());
+    }
+
+    /**
+     * Hands over tasks this node had already admitted (answer to a steal request)
+     * Takes outbox room past MAX_OUTBOX_TASKS; a steal answer is at most one batch.
+     */
+    public void sendTasks(int peer, List<Task> tasks, int[] retryCounts) {
+        Peer target = peers[peer];
+        target.outboxSize.addAndGet(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            target.outbox.add(new Outgoing(tasks.get(i), retryCounts[i], true));
+        }
+        wakeup();
+    }
+
+    /**
+     * Tells a peer that this node refused count of the tasks it forwarded; notices not yet sent are summed
+     */
+    public void sendRefused(int peer, int count) {
+        peers[peer].refusals.addAndGet(count);
+        wakeup();
+    }
+
+    /**
+     * Asks a peer to hand over up to maxTasks of its queued tasks; requests not yet sent are merged
+     */
+    public void requestSteal(int peer, int maxTasks) {
+        peers[peer].stealRequest.accumulateAndGet(maxTasks, Math::max);
+        wakeup();
+    }
+
+    private void wakeup() {
+        if (wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    // ---- selector thread ----
+
+    private void runSelector() {
+        try {
+            while (running) {
+                connectPeers();
+                selector.select(SELECT_TIMEOUT_MILLIS);
+                // Reset before draining the outboxes, so a send after this point wakes the next select
+                wakeupPending.set(false);
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        handleKey(key);
+                    } catch (RuntimeException e) {
+                        // One bad key must not stop the only thread serving every connection
+                        log.error("Cluster node {} failed to handle a selection key", selfId, e);
+                    }
+                }
+                long now = System.nanoTime();
+                for (Peer peer : peers) {
+                    if (peer != null && peer.connected) {
+                        flush(peer);
+                    } else if (peer != null && peer.isDown(now) && !peer.outbox.isEmpty()) {
+                        returnUndeliverable(peer);
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                log.error("Cluster selector failed: {}", e.getMessage());
+            }
+        }
+        log.info("Cluster node {} transport stopped", selfId);
+    }
+
+    private void handleKey(SelectionKey key) throws IOException {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            SocketChannel channel = server.accept();
+            if (channel != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.register(selector, SelectionKey.OP_READ, new Inbound());
+            }
+        } else if (key.attachment() instanceof Peer peer) {
+            if (key.isConnectable()) {
+                finishConnect(peer, key);
+            } else if (key.isWritable()) {
+                flush(peer);
+            }
+        } else if (key.isReadable()) {
+            read((SocketChannel) key.channel(), key, (Inbound) key.attachment());
+        }
+    }
+
+    private void connectPeers() {
+        long now = System.nanoTime();
+        for (Peer peer : peers) {
+            if (peer == null || peer.channel != null || now - peer.nextConnectNanos < 0) {
+                continue;
+            }
+            try {
+                SocketChannel channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                peer.channel = channel;
+                if (channel.connect(peer.address)) {
+                    peer.connected = true;
+                    peer.key = channel.register(selector, 0, peer);
+                } else {
+                    peer.key = channel.register(selector, SelectionKey.OP_CONNECT, peer);
+                }
+            } catch (IOException e) {
+                disconnect(peer, e);
+            }
+        }
+    }
+
+    private void finishConnect(Peer peer, SelectionKey key) {
+        try {
+            if (peer.channel.finishConnect()) {
+                peer.connected = true;
+                key.interestOps(0);
+                log.info("Cluster node {} connected to node {} at {}", selfId, peer.id, peer.address);
+            }
+        } catch (IOException e) {
+            disconnect(peer, e);
+        }
+    }
+
+    /**
+     * Hands the tasks waiting for a peer that stays unreachable back to the handler, one call per kind
+     */
+    private void returnUndeliverable(Peer peer) {
+        List<Outgoing> waiting = new ArrayList<>();
+        Outgoing next;
+        while ((next = peer.outbox.poll()) != null) {
+            peer.outboxSize.decrementAndGet();
+            waiting.add(next);
+        }
+        log.warn("Cluster node {} unreachable for over {} s, taking back {} tasks queued for it",
+                peer.id, TimeUnit.NANOSECONDS.toSeconds(PEER_DOWN_TIMEOUT_NANOS), waiting.size());
+        for (boolean admitted : new boolean[]{false, true}) {
+            List<Task> tasks = new ArrayList<>();
+            List<Integer> retryCounts = new ArrayList<>();
+            for (Outgoing outgoing : waiting) {
+                if (outgoing.admitted() == admitted) {
+                    tasks.add(outgoing.task());
+                    retryCounts.add(outgoing.retryCount());
+                }
+            }
+            if (!tasks.isEmpty()) {
+                handler.onUndeliverable(peer.id, tasks, retryCounts.stream().mapToInt(Integer::intValue).toArray(),
+                        admitted);
+            }
+        }
+    }
+
+    private void disconnect(Peer peer, IOException cause) {
+        if (peer.connected) {
+            peer.downSinceNanos = System.nanoTime();
+            log.warn("Lost connection to cluster node {}: {}", peer.id, cause.getMessage());
+        } else {
+            log.debug("Cluster node {} not reachable yet: {}", peer.id, cause.getMessage());
+        }
+        if (peer.key != null) {
+            peer.key.cancel();
+        }
+        try {
+            if (peer.channel != null) {
+                peer.channel.close();
+            }
+        } catch (IOException ignored) {
+            // Already broken
+        }
+        if (peer.bufferedTasks > 0) {
+            tasksDropped.add(peer.bufferedTasks);
+            log.warn("Dropped {} tasks buffered for cluster node {}", peer.bufferedTasks, peer.id);
+        }
+        peer.pending.clear().flip();
+        peer.bufferedTasks = 0;
+        peer.channel = null;
+        peer.key = null;
+        peer.connected = false;
+        peer.nextConnectNanos = System.nanoTime() + RECONNECT_DELAY_NANOS;
+    }
+
+    /**
+     * Encodes what is waiting for the peer once the previous frames are written, then writes as much as the socket takes
+     */
+    private void flush(Peer peer) {
+        try {
+            if (!peer.pending.hasRemaining()) {
+                peer.bufferedTasks = 0;
+                fill(peer);
+            }
+            if (peer.pending.hasRemaining()) {
+                peer.channel.write(peer.pending);
+            }
+            // Ask for a write-ready event only while the socket is backed up
+            peer.key.interestOps(peer.pending.hasRemaining() ? SelectionKey.OP_WRITE : 0);
+        } catch (IOException e) {
+            disconnect(peer, e);
+        }
+    }
+
+    private void fill(Peer peer) {
+        ByteBuffer buffer = peer.pending.clear();
+        int steal = peer.stealRequest.getAndSet(0);
+        if (steal > 0) {
+            buffer.putInt(1 + 4 + 4).put(FRAME_STEAL).putInt(selfId).putInt(steal);
+        }
+        int refused = peer.refusals.getAndSet(0);
+        if (refused > 0) {
+            buffer.putInt(1 + 4 + 4).put(FRAME_REFUSED).putInt(selfId).putInt(refused);
+        }
+        Outgoing first;
+        while ((first = peer.outbox.peek()) != null && buffer.remaining() > FRAME_HEADER_SIZE + 4) {
+            int frameStart = buffer.position();
+            boolean admitted = first.admitted();
+            buffer.putInt(0).put(admitted ? FRAME_HANDOVER : FRAME_TASKS).putInt(selfId).putInt(0);
+            int count = 0;
+            Outgoing next;
+            // One frame carries one kind of task
+            while (count < MAX_TASKS_PER_FRAME && (next = peer.outbox.peek()) != null && next.admitted() == admitted) {
+                int size = 4 + 4 + TaskCodec.maxEncodedSize(next.task());
+                if (buffer.remaining() < size) {
+                    if (frameStart == 0 && count == 0) {
+                        // A single task larger than the buffer: grow it rather than stall
+                        buffer = grow(peer, frameStart, size);
+                    } else {
+                        break;
+                    }
+                }
+                peer.outbox.poll();
+                peer.outboxSize.decrementAndGet();
+                int lengthPos = buffer.position();
+                buffer.putInt(0).putInt(next.retryCount());
+                TaskCodec.encode(next.task(), buffer);
+                buffer.putInt(lengthPos, buffer.position() - lengthPos - 8);
+                count++;
+            }
+            if (count == 0) {
+                buffer.position(frameStart);
+                break;
+            }
+            buffer.putInt(frameStart, buffer.position() - frameStart - 4);
+            buffer.putInt(frameStart + FRAME_HEADER_SIZE, count);
+            peer.bufferedTasks += count;
+            tasksSent.add(count);
+            framesSent.increment();
+        }
+        buffer.flip();
+    }
+
+    private ByteBuffer grow(Peer peer, int used, int extra) {
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(peer.pending.capacity() * 2, used + extra + FRAME_HEADER_SIZE + 4));
+        larger.put(peer.pending.flip());
+        peer.pending = larger;
+        return larger;
+    }
+
+    private void read(SocketChannel channel, SelectionKey key, Inbound inbound) {
+        try {
+            if (channel.read(inbound.buffer) < 0) {
+                closeInbound(channel, key);
+                return;
+            }
+        } catch (IOException e) {
+            closeInbound(channel, key);
+            return;
+        }
+
+        ByteBuffer buffer = inbound.buffer.flip();
+        while (buffer.remaining() >= 4) {
+            int length = buffer.getInt(buffer.position());
+            if (length < FRAME_HEADER_SIZE - 4 || length > MAX_FRAME_SIZE) {
+                log.warn("Closing cluster connection after a malformed frame of length {}", length);
+                closeInbound(channel, key);
+                return;
+            }
+            if (buffer.remaining() < 4 + length) {
+                if (buffer.capacity() < 4 + length) {
+                    ByteBuffer larger = ByteBuffer.allocate(4 + length);
+                    larger.put(buffer);
+                    inbound.buffer = larger;
+                    return;
+                }
+                break;
+            }
+            int frameEnd = buffer.position() + 4 + length;
+            buffer.position(buffer.position() + 4);
+            byte type = buffer.get();
+            int sender = buffer.getInt();
+            ByteBuffer body = buffer.slice(buffer.position(), frameEnd - buffer.position());
+            buffer.position(frameEnd);
+            try {
+                dispatch(type, sender, body);
+            } catch (RuntimeException e) {
+                // The stream can no longer be trusted; the peer reconnects and resends what it still has
+                log.warn("Closing cluster connection after a bad frame of type {} from node {}: {}",
+                        type, sender, e.toString());
+                closeInbound(channel, key);
+                return;
+            }
+        }
+        buffer.compact();
+    }
+
+    /**
+     * @throws IllegalStateException if the frame's fields do not fit its body; decoding or handler failures
+     * surface as other runtime exceptions
+     */
+    private void dispatch(byte type, int sender, ByteBuffer body) {
+        if (sender < 0 || sender >= peers.length || sender == selfId) {
+            throw new IllegalStateException("sender " + sender + " is not a peer");
+        }
+        if (type == FRAME_STEAL) {
+            handler.onStealRequest(sender, readCount(body, Integer.MAX_VALUE));
+            return;
+        }
+        if (type == FRAME_REFUSED) {
+            handler.onRefused(sender, readCount(body, Integer.MAX_VALUE));
+            return;
+        }
+        if (type != FRAME_TASKS && type != FRAME_HANDOVER) {
+            log.warn("Ignoring cluster frame of unknown type {} from node {}", type, sender);
+            return;
+        }
+        // Every task takes at least its length and retry count
+        int count = readCount(body, Math.min(MAX_TASKS_PER_FRAME, body.remaining() / 8));
+        List<Task> tasks = new ArrayList<>(count);
+        int[] retryCounts = new int[count];
+        for (int i = 0; i < count; i++) {
+            if (body.remaining() < 8) {
+                throw new IllegalStateException("frame ends before task " + i + " of " + count);
+            }
+            int length = body.getInt();
+            retryCounts[i] = body.getInt();
+            if (length < 0 || length > body.remaining() || retryCounts[i] < 0) {
+                throw new IllegalStateException("task " + i + " has length " + length + " and retry count "
+                        + retryCounts[i] + " with " + body.remaining() + " bytes left");
+            }
+            tasks.add(TaskCodec.decode(body.slice(body.position(), length)));
+            body.position(body.position() + length);
+        }
+        tasksReceived.add(count);
+        handler.onTasks(sender, tasks, retryCounts, type == FRAME_HANDOVER);
+    }
+
+    private static int readCount(ByteBuffer body, int max) {
+        if (body.remaining() < 4) {
+            throw new IllegalStateException("frame body too short");
+        }
+        int count = body.getInt();
+        if (count < 0 || count > max) {
+            throw new IllegalStateException("count " + count + " outside 0.." + max);
+        }
+        return count;
+    }
+
+    private void closeInbound(SocketChannel channel, SelectionKey key) {
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Closing anyway
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            selectorThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int unsent = 0;
+        for (Peer peer : peers) {
+            if (peer != null) {
+                unsent += peer.outbox.size();
+                if (peer.channel != null) {
+                    peer.channel.close();
+                }
+            }
+        }
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+        if (unsent > 0) {
+            tasksDropped.add(unsent);
+            log.warn("Cluster node {} closed with {} unsent tasks", selfId, unsent);
+        }
+    }
+
+    public long getTasksSent() {
+        return tasksSent.sum();
+    }
+
+    public long getTasksReceived() {
+        return tasksReceived.sum();
+    }
+
+    public long getFramesSent() {
+        return framesSent.sum();
+    }
+
+    public long getTasksDropped() {
+        return tasksDropped.sum();
+    }
+
+    private record Outgoing(Task task, int retryCount, boolean admitted) {
+    }
+
+    private static final class Peer {
+        private final int id;
+        private final InetSocketAddress address;
+        private final ConcurrentLinkedQueue<Outgoing> outbox = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger stealRequest = new AtomicInteger();
+        private final AtomicInteger refusals = new AtomicInteger();
+        // Outbox entries plus reserved slots; ConcurrentLinkedQueue.size() is a linear scan
+        private final AtomicInteger outboxSize = new AtomicInteger();
+
+        // Written by the selector thread only
+        private volatile boolean connected;
+        private volatile long downSinceNanos = System.nanoTime();
+
+        // Selector thread only
+        private SocketChannel channel;
+        private SelectionKey key;
+        private long nextConnectNanos = System.nanoTime();
+        private ByteBuffer pending = ByteBuffer.allocate(BUFFER_SIZE).flip();
+        private int bufferedTasks; // tasks encoded in pending, lost if the connection breaks
+
+        private Peer(int id, InetSocketAddress address) {
+            this.id = id;
+            this.address = address;
+        }
+
+        boolean isDown(long now) {
+            return !connected && now - downSinceNanos > PEER_DOWN_TIMEOUT_NANOS;
+        }
+    }
+
+    private static final class Inbound {
+        private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    }
+}
@@ -0,0 +1,382 @@
+package cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import model.ETaskType;
+import model.Task;
+import queue.TaskQueue;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TaskQueue for one node of a cluster in which every node owns the tasks whose routing key hashes to it
+ * - The routing key is the idempotency key when the task has one, so every resend reaches the same node
+ *   and its idempotency index; otherwise it is the task id
+ * - New tasks owned by another node are forwarded over the ClusterTransport; the owner queues them locally
+ * - Requeued tasks (retries, returned work) stay on the node that ran them
+ * - A node whose local queue is empty when a worker asks for work sends a steal request to the next peer;
+ *   a peer with more than STEAL_MIN_BACKLOG queued tasks hands over up to half of the surplus, least urgent first
+ *
+ * A task is kept and queued here instead when the owner's outbox is full or the owner has been unreachable
+ * past the transport's timeout; tasks stuck in the outbox of such a peer come back and are queued here too.
+ * Forwarding is fire-and-forget: offer reports success once the task is handed to the transport. The owner
+ * runs admission control on arrival, on its own admission thread so a blocking policy never stalls the
+ * transport; the ownership listener hears the outcome, and a refused task is counted back at the sending node.
+ * Tasks handed over for a steal were admitted by the victim and are requeued past the limit; a stolen keyed
+ * task is indexed at the thief, so until it finishes a resend reaching the key's owner is queued again.
+ * Bulkhead partitions are served from the local queue only, without stealing.
+ */
+@Slf4j
+public class ClusteredTaskQueue implements TaskQueue, ClusterTransport.FrameHandler, Closeable {
+
+    private static final int STEAL_BATCH = 16;
+    private static final int STEAL_MIN_BACKLOG = 4;
+    private static final long STEAL_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final TaskQueue local;
+    private final TaskOwnershipListener ownershipListener;
+    private final ClusterTransport transport;
+    private final int selfId;
+    private final int clusterSize;
+
+    private final AtomicLong lastStealNanos = new AtomicLong(System.nanoTime() - STEAL_INTERVAL_NANOS);
+    private final AtomicInteger nextVictim = new AtomicInteger();
+    private final LongAdder forwardedCount = new LongAdder();
+    private final LongAdder receivedCount = new LongAdder();
+    private final LongAdder givenAwayCount = new LongAdder();
+    private final LongAdder stealRequestCount = new LongAdder();
+    private final LongAdder refusedCount = new LongAdder();
+    private final LongAdder refusedByPeersCount = new LongAdder();
+    private final LongAdder keptCount = new LongAdder();
+    // Admission of forwarded tasks may block (BLOCK policy), so it runs off the selector thread
+    private final ExecutorService admission;
+
+    public ClusteredTaskQueue(TaskQueue local, int selfId, List<InetSocketAddress> members,
+                              TaskOwnershipListener ownershipListener) throws IOException {
+        this.local = local;
+        this.ownershipListener = ownershipListener;
+        this.selfId = selfId;
+        this.clusterSize = members.size();
+        this.transport = new ClusterTransport(selfId, members, this);
+        this.admission = Executors.newSingleThreadExecutor(
+                Thread.ofPlatform().name("ClusterAdmission-" + selfId).daemon().factory());
+        nextVictim.set(selfId + 1);
+    }
+
+    public void start() {
+        transport.start();
+    }
+
+    /**
+     * Node that owns the task: its routing key's hash modulo the cluster size
+     */
+    public int ownerOf(Task task) {
+        String key = task.getIdempotencyKey();
+        return Math.floorMod(key != null ? key.hashCode() : task.getId().hashCode(), clusterSize);
+    }
+
+    @Override
+    public boolean offer(Task task) {
+        int owner = ownerOf(task);
+        if (owner != selfId && transport.tryReserve(owner)) {
+            forward(owner, task);
+            return true;
+        }
+        if (owner != selfId) {
+            keptCount.increment();
+        }
+        return local.offer(task);
+    }
+
+    @Override
+    public int offerAll(Collection<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return 0;
+        }
+        List<Task> batch = new ArrayList<>(tasks);
+        int[] owners = new int[batch.size()];
+        List<Task> localTasks = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            owners[i] = ownerOf(batch.get(i));
+            // A task whose owner cannot take it right now stays here
+            if (owners[i] != selfId && !transport.tryReserve(owners[i])) {
+                owners[i] = selfId;
+                keptCount.increment();
+            }
+            if (owners[i] == selfId) {
+                localTasks.add(batch.get(i));
+            }
+        }
+
+        int localAccepted = localTasks.isEmpty() ? 0 : local.offerAll(localTasks);
+        // Keep the prefix contract: forward only the tasks ahead of the first local refusal
+        int accepted = batch.size();
+        int localSeen = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (owners[i] == selfId) {
+                if (localSeen++ == localAccepted) {
+                    accepted = i;
+                    break;
+                }
+            } else {
+                forward(owners[i], batch.get(i));
+            }
+        }
+        for (int i = accepted; i < batch.size(); i++) {
+            if (owners[i] != selfId) {
+                transport.release(owners[i]);
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Called with an outbox slot reserved for the owner
+     */
+    private void forward(int owner, Task task) {
+        int retryCount = ownershipListener.onTaskLeft(task);
+        transport.sendTask(owner, task, retryCount);
+        forwardedCount.increment();
+    }
+
+    @Override
+    public boolean requeue(Task task) {
+        return local.requeue(task);
+    }
+
+    @Override
+    public Task poll() {
+        Task task = local.poll();
+        if (task == null) {
+            maybeSteal();
+        }
+        return task;
+    }
+
+    @Override
+    public Task poll(long timeout, TimeUnit unit) throws InterruptedException {
+        Task task = local.poll();
+        if (task != null) {
+            return task;
+        }
+        // Stolen tasks land in the local queue and wake this wait
+        maybeSteal();
+        return local.poll(timeout, unit);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Task> sink, int maxElements) {
+        int drained = local.drainTo(sink, maxElements);
+        if (drained == 0) {
+            maybeSteal();
+        }
+        return drained;
+    }
+
+    /**
+     * At most one steal request per STEAL_INTERVAL across all workers of this node, peers taken in turn
+     */
+    private void maybeSteal() {
+        if (clusterSize < 2) {
+            return;
+        }
+        long now = System.nanoTime();
+        long last = lastStealNanos.get();
+        if (now - last < STEAL_INTERVAL_NANOS || !lastStealNanos.compareAndSet(last, now)) {
+            return;
+        }
+        int victim = Math.floorMod(nextVictim.getAndIncrement(), clusterSize);
+        if (victim == selfId) {
+            victim = Math.floorMod(nextVictim.getAndIncrement(), clusterSize);
+        }
+        transport.requestSteal(victim, STEAL_BATCH);
+        stealRequestCount.increment();
+    }
+
+    @Override
+    public void onTasks(int sender, List<Task> tasks, int[] retryCounts, boolean admitted) {
+        receivedCount.add(tasks.size());
+        queueArrived(sender, tasks, retryCounts, admitted);
+    }
+
+    private void queueArrived(int sender, List<Task> tasks, int[] retryCounts, boolean admitted) {
+        List<Task> forwarded = new ArrayList<>(admitted ? 0 : tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            if (!ownershipListener.onTaskArrived(task, retryCounts[i], admitted)) {
+                continue;
+            }
+            if (admitted) {
+                local.requeue(task);
+            } else {
+                forwarded.add(task);
+            }
+        }
+        if (!forwarded.isEmpty()) {
+            admission.execute(() -> admitForwarded(sender, forwarded));
+        }
+    }
+
+    /**
+     * Offers forwarded tasks with the local queue's admission control and reports refusals to the sender
+     */
+    private void admitForwarded(int sender, List<Task> tasks) {
+        int refused = 0;
+        for (Task task : tasks) {
+            if (local.offer(task)) {
+                ownershipListener.onTaskAdmitted(task);
+            } else {
+                ownershipListener.onTaskRefused(task);
+                refused++;
+            }
+        }
+        if (refused > 0) {
+            refusedCount.add(refused);
+            if (sender != selfId) {
+                transport.sendRefused(sender, refused);
+            }
+        }
+    }
+
+    /**
+     * Tasks that could not reach an unreachable peer run here instead, through admission if they were new work
+     */
+    @Override
+    public void onUndeliverable(int peer, List<Task> tasks, int[] retryCounts, boolean admitted) {
+        keptCount.add(tasks.size());
+        queueArrived(selfId, tasks, retryCounts, admitted);
+    }
+
+    @Override
+    public void onRefused(int sender, int count) {
+        refusedByPeersCount.add(count);
+        log.warn("Cluster node {} refused {} tasks forwarded by node {}", sender, count, selfId);
+    }
+
+    @Override
+    public void onStealRequest(int sender, int maxTasks) {
+        int surplus = local.size() - STEAL_MIN_BACKLOG;
+        if (surplus <= 0 || !transport.isAvailable(sender)) {
+            return;
+        }
+        // Give away the least urgent work; the most urgent tasks would only lose time crossing the network
+        int wanted = Math.min(maxTasks, (surplus + 1) / 2);
+        List<Task> stolen = new ArrayList<>(wanted);
+        Task task;
+        while (stolen.size() < wanted && (task = local.pollLeastUrgent()) != null) {
+            stolen.add(task);
+        }
+        if (stolen.isEmpty()) {
+            return;
+        }
+        int[] retryCounts = new int[stolen.size()];
+        for (int i = 0; i < stolen.size(); i++) {
+            retryCounts[i] = ownershipListener.onTaskLeft(stolen.get(i));
+        }
+        transport.sendTasks(sender, stolen, retryCounts);
+        givenAwayCount.add(stolen.size());
+        log.debug("Node {} handed {} tasks to idle node {}", selfId, stolen.size(), sender);
+    }
+
+    @Override
+    public Task pollLeastUrgent() {
+        return local.pollLeastUrgent();
+    }
+
+    @Override
+    public Task peekLeastUrgent() {
+        return local.peekLeastUrgent();
+    }
+
+    @Override
+    public Comparator<? super Task> comparator() {
+        return local.comparator();
+    }
+
+    @Override
+    public TaskQueue partition(ETaskType type) {
+        TaskQueue partition = local.partition(type);
+        return partition == local ? this : partition;
+    }
+
+    /**
+     * Tasks queued on this node
+     */
+    @Override
+    public int size() {
+        return local.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        admission.shutdown();
+        try {
+            admission.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        transport.close();
+    }
+
+    public int getSelfId() {
+        return selfId;
+    }
+
+    public long getForwardedCount() {
+        return forwardedCount.sum();
+    }
+
+    /**
+     * Tasks forwarded to this node or stolen by it
+     */
+    public long getReceivedCount() {
+        return receivedCount.sum();
+    }
+
+    /**
+     * Tasks peers stole from this node
+     */
+    public long getGivenAwayCount() {
+        return givenAwayCount.sum();
+    }
+
+    public long getStealRequestCount() {
+        return stealRequestCount.sum();
+    }
+
+    /**
+     * Forwarded tasks this node's admission control refused
+     */
+    public long getRefusedCount() {
+        return refusedCount.sum();
+    }
+
+    /**
+     * Tasks this node forwarded that their owner refused
+     */
+    public long getRefusedByPeersCount() {
+        return refusedByPeersCount.sum();
+    }
+
+    /**
+     * Tasks owned by another node that were queued here because the owner's outbox was full or it was unreachable
+     */
+    public long getKeptCount() {
+        return keptCount.sum();
+    }
+
+    public long getDroppedCount() {
+        return transport.getTasksDropped();
+    }
+}
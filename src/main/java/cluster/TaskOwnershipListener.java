@@ -0,0 +1,36 @@
+package cluster;
+
+import model.Task;
+
+/**
+ * Callbacks for tasks moving between nodes, so node-local state (status tracker, indexes) follows the task
+ */
+public interface TaskOwnershipListener {
+
+    /**
+     * The task was forwarded to its owner or stolen by another node and will not run here
+     * @return the task's retry count, shipped along with it
+     */
+    int onTaskLeft(Task task);
+
+    /**
+     * A task forwarded or stolen from another node is about to be queued here
+     * Called on the transport's selector thread.
+     * @param admitted true for tasks handed over after passing admission elsewhere; false for forwarded work,
+     *                 whose admission here is reported later through onTaskAdmitted or onTaskRefused
+     * @return false if the task was merged into one already live here and must not be queued
+     */
+    boolean onTaskArrived(Task task, int retryCount, boolean admitted);
+
+    /**
+     * A task forwarded to this node was accepted by its admission control
+     * Called on the cluster's admission thread, after onTaskArrived accepted it; a worker may already be running it.
+     */
+    void onTaskAdmitted(Task task);
+
+    /**
+     * A task forwarded to this node was refused by its admission control and is not queued anywhere
+     * Called on the cluster's admission thread, after onTaskArrived accepted it.
+     */
+    void onTaskRefused(Task task);
+}
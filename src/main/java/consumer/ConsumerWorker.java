@@ -2,35 +2,137 @@ package consumer;
 
 import lombok.extern.slf4j.Slf4j;
 import model.ETaskStatus;
+import model.ETaskType;
 import model.Task;
+import monitor.TaskLatencyMetrics;
 import prototype.MainApp;
+import queue.TaskQueue;
+import service.CircuitBreakerRegistry;
+import service.SimulatedTaskHandler;
+import service.TaskHandler;
 import service.TaskStatusTracker;
 
-import java.util.Random;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Enhanced worker that can handle task failures and retry logic
  * Automatically retries failed tasks up to MAX_RETRY_ATTEMPTS
+ * Each attempt runs the TaskHandler registered for the task's type in MainApp's handler registry.
+ *
+ * With a batch size above 1 the worker drains up to that many tasks per queue access,
+ * processes them locally in priority order and publishes their status changes in grouped calls.
+ *
+ * With a WorkStealingScheduler the worker takes tasks from its own local run queue and keeps its retries there.
  */
 @Slf4j
 public class ConsumerWorker implements Runnable {
+
     private final String workerName;
-    private final Random random;
+    private final TaskHandler handlerOverride;
+    private final ETaskType partition;
+    private final int batchSize;
+    private final long maxBatchWaitNanos;
+    private final WorkStealingScheduler stealingScheduler;
+    // Set while a work-stealing worker runs: where its retries go once their backoff expired
+    private Consumer<Task> localRetryTarget;
+    private volatile boolean retired;
 
     public ConsumerWorker(String workerName) {
+        this(workerName, null, null, 1, Duration.ZERO);
+    }
+
+    /**
+     * Runs every task with the standard simulated handler instead of the registered ones
+     * @param processingTimeScale multiplier for the simulated processing time (0 disables the sleep)
+     * @param failurePercent chance in percent that a processing attempt fails
+     */
+    public ConsumerWorker(String workerName, double processingTimeScale, int failurePercent) {
+        this(workerName, processingTimeScale, failurePercent, 1, Duration.ZERO);
+    }
+
+    /**
+     * Batched consumption mode
+     * @param batchSize maximum number of tasks taken from the queue at once
+     * @param maxBatchWait how long to keep collecting once the first task of a batch arrived
+     */
+    public ConsumerWorker(String workerName, int batchSize, Duration maxBatchWait) {
+        this(workerName, null, null, batchSize, maxBatchWait);
+    }
+
+    public ConsumerWorker(String workerName, double processingTimeScale, int failurePercent,
+                          int batchSize, Duration maxBatchWait) {
+        this(workerName, SimulatedTaskHandler.standard(processingTimeScale, failurePercent),
+                null, batchSize, maxBatchWait);
+    }
+
+    /**
+     * Bulkhead worker: only takes tasks of the given type from the queue
+     */
+    public ConsumerWorker(String workerName, ETaskType partition, int batchSize, Duration maxBatchWait) {
+        this(workerName, null, partition, batchSize, maxBatchWait);
+    }
+
+    /**
+     * Work-stealing worker: takes tasks through the scheduler's local run queues instead of the shared queue
+     */
+    public ConsumerWorker(String workerName, WorkStealingScheduler stealingScheduler) {
+        this(workerName, null, null, 1, Duration.ZERO, stealingScheduler);
+    }
+
+    private ConsumerWorker(String workerName, TaskHandler handlerOverride, ETaskType partition,
+                           int batchSize, Duration maxBatchWait) {
+        this(workerName, handlerOverride, partition, batchSize, maxBatchWait, null);
+    }
+
+    private ConsumerWorker(String workerName, TaskHandler handlerOverride, ETaskType partition,
+                           int batchSize, Duration maxBatchWait, WorkStealingScheduler stealingScheduler) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
         this.workerName = workerName;
-        this.random = new Random();
+        this.handlerOverride = handlerOverride;
+        this.partition = partition;
+        this.batchSize = batchSize;
+        this.maxBatchWaitNanos = maxBatchWait.toNanos();
+        this.stealingScheduler = stealingScheduler;
+    }
+
+    /**
+     * Asks the worker to exit once its current task or batch is done, used when the pool scales down
+     * An idle worker notices within one poll timeout; queued work is left for the remaining workers
+     */
+    public void retire() {
+        retired = true;
+    }
+
+    public String getWorkerName() {
+        return workerName;
     }
 
     @Override
     public void run() {
         log.info("ConsumerWorker {} started", workerName);
 
+        if (stealingScheduler != null) {
+            runWorkStealing();
+            return;
+        }
+        // Resolved once: a partition view may be a fresh wrapper on every call
+        TaskQueue queue = sourceQueue();
+        if (batchSize > 1) {
+            runBatched(queue);
+            return;
+        }
+
         try{
-            while (!Thread.currentThread().isInterrupted()) {
+            while (!retired && !Thread.currentThread().isInterrupted()) {
                 // Try to get a task from the queue (with timeout)
-                Task task = MainApp.getTaskQueue().poll(2, TimeUnit.SECONDS);
+                Task task = queue.poll(2, TimeUnit.SECONDS);
 
                 if (task != null) {
                     processTaskWithRetry(task);
@@ -45,34 +147,61 @@ public class ConsumerWorker implements Runnable {
         log.info("ConsumerWorker {} finished", workerName);
     }
 
+    private void runWorkStealing() {
+        WorkStealingScheduler.LocalRunQueue runQueue = stealingScheduler.register(workerName);
+        localRetryTarget = task -> stealingScheduler.requeueLocally(runQueue, task);
+        try {
+            while (!retired && !Thread.currentThread().isInterrupted()) {
+                Task task = stealingScheduler.take(runQueue, 2, TimeUnit.SECONDS);
+                if (task != null) {
+                    processTaskWithRetry(task);
+                } else {
+                    log.debug("Worker {} waiting for tasks...", workerName);
+                }
+            }
+        } catch (InterruptedException e) {
+            log.info("ConsumerWorker {} interrupted, stopping...", workerName);
+        } finally {
+            stealingScheduler.deregister(runQueue);
+        }
+        log.info("ConsumerWorker {} finished", workerName);
+    }
+
+    /**
+     * Processes a single task on the calling thread (used by the virtual-thread dispatcher)
+     */
+    void process(Task task) {
+        processTaskWithRetry(task);
+    }
+
     private void processTaskWithRetry(Task task) {
-        log.info("Worker {} picked up task: {} (Priority: {})",
-                workerName, task.getName(), task.getPriority());
+        long dequeuedNanos = System.nanoTime();
+        if (log.isDebugEnabled()) {
+            log.debug("Worker {} picked up task: {} (Priority: {})",
+                    workerName, task.getName(), task.getPriority());
+        }
+        if (shedIfDeadlineUnreachable(task, dequeuedNanos)) {
+            return;
+        }
 
         // Update status to PROCESSING
         MainApp.getStatusTracker().updateTaskStatus(
                 task.getId(), ETaskStatus.PROCESSING, workerName);
 
         try {
-            // Simulate processing time based on priority
-            int processingTime = calculateProcessingTime(task.getPriority());
-            log.info("Worker {} processing task {} for {} ms",
-                    workerName, task.getName(), processingTime);
-
-            Thread.sleep(processingTime);
-
-            // Simulate failures with higher probability (15% of chance)
-            if (random.nextInt(100) < 15) {
-                throw new RuntimeException("Simulated processing failure - network timeout");
-            }
+            executeTask(task);
 
             // Success!
             MainApp.getStatusTracker().updateTaskStatus(
                     task.getId(), ETaskStatus.COMPLETED, workerName);
             MainApp.getTotalTasksProcessed().incrementAndGet();
+            MainApp.getLatencyMetrics().recordCompletion(task, dequeuedNanos, System.nanoTime());
+            recordOutcome(task, true);
 
-            log.info("Worker {} successfully completed task: {}",
-                    workerName, task.getName());
+            if (log.isDebugEnabled()) {
+                log.debug("Worker {} successfully completed task: {}",
+                        workerName, task.getName());
+            }
 
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -82,8 +211,188 @@ public class ConsumerWorker implements Runnable {
         }
     }
 
+    private void runBatched(TaskQueue queue) {
+        log.info("Worker {} using batched consumption (batch size: {}, max wait: {} ms)",
+                workerName, batchSize, TimeUnit.NANOSECONDS.toMillis(maxBatchWaitNanos));
+        List<Task> batch = new ArrayList<>(batchSize);
+
+        try {
+            while (!retired && !Thread.currentThread().isInterrupted()) {
+                if (collectBatch(queue, batch) > 0) {
+                    processBatch(batch);
+                    batch.clear();
+                } else {
+                    log.debug("Worker {} waiting for tasks...", workerName);
+                }
+            }
+        } catch (InterruptedException e) {
+            log.info("ConsumerWorker {} interrupted, stopping...", workerName);
+        }
+        log.info("ConsumerWorker {} finished", workerName);
+    }
+
+    /**
+     * Waits for the first task, then drains the queue until the batch is full or maxBatchWait expires
+     */
+    private int collectBatch(TaskQueue queue, List<Task> batch) throws InterruptedException {
+        Task first = queue.poll(2, TimeUnit.SECONDS);
+        if (first == null) {
+            return 0;
+        }
+        batch.add(first);
+        queue.drainTo(batch, batchSize - 1);
+
+        long deadline = System.nanoTime() + maxBatchWaitNanos;
+        while (batch.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            Task next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+            queue.drainTo(batch, batchSize - batch.size());
+        }
+
+        // Tasks that arrived while lingering may outrank the ones drained first
+        batch.sort(queue.comparator());
+        return batch.size();
+    }
+
+    /**
+     * Runs the batch in order; each task's service time counts from its own start, time spent behind
+     * earlier tasks of the batch counts as queue wait
+     */
+    private void processBatch(List<Task> batch) {
+        TaskStatusTracker statusTracker = MainApp.getStatusTracker();
+        TaskLatencyMetrics latencyMetrics = MainApp.getLatencyMetrics();
+        log.debug("Worker {} picked up batch of {} tasks", workerName, batch.size());
+
+        statusTracker.updateTaskStatuses(taskIds(batch), ETaskStatus.PROCESSING, workerName);
+
+        List<UUID> completed = new ArrayList<>(batch.size());
+        int index = 0;
+        try {
+            for (; index < batch.size(); index++) {
+                Task task = batch.get(index);
+                long startedNanos = System.nanoTime();
+                if (shedIfDeadlineUnreachable(task, startedNanos)) {
+                    continue;
+                }
+                try {
+                    executeTask(task);
+                    completed.add(task.getId());
+                    latencyMetrics.recordCompletion(task, startedNanos, System.nanoTime());
+                    recordOutcome(task, true);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    handleTaskFailure(task, "Worker interrupted during processing");
+                    index++;
+                    break;
+                } catch (Exception e) {
+                    handleTaskFailure(task, e.getMessage());
+                }
+            }
+        } finally {
+            if (!completed.isEmpty()) {
+                statusTracker.updateTaskStatuses(completed, ETaskStatus.COMPLETED, workerName);
+                MainApp.getTotalTasksProcessed().addAndGet(completed.size());
+            }
+            returnUnprocessed(batch.subList(index, batch.size()));
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Worker {} finished batch: {} completed, {} failed or retried",
+                    workerName, completed.size(), index - completed.size());
+        }
+    }
+
+    /**
+     * Puts tasks the worker never started back on the queue (e.g. after an interrupt)
+     */
+    private void returnUnprocessed(List<Task> unprocessed) {
+        if (unprocessed.isEmpty()) {
+            return;
+        }
+        MainApp.getStatusTracker().updateTaskStatuses(taskIds(unprocessed), ETaskStatus.SUBMITTED, workerName);
+        unprocessed.forEach(MainApp.getTaskQueue()::requeue);
+        log.info("Worker {} returned {} unprocessed tasks to the queue", workerName, unprocessed.size());
+    }
+
+    private static List<UUID> taskIds(List<Task> tasks) {
+        List<UUID> ids = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            ids.add(task.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Fails a task that can no longer complete by its deadline instead of running it, when deadline shedding
+     * is on: the deadline has passed, or is closer than the mean service time of the task's type
+     * @return true if the task was shed
+     */
+    private boolean shedIfDeadlineUnreachable(Task task, long nowNanos) {
+        if (!task.hasDeadline() || !MainApp.isDeadlineSheddingEnabled()) {
+            return false;
+        }
+        TaskLatencyMetrics latencyMetrics = MainApp.getLatencyMetrics();
+        long expectedServiceNanos = latencyMetrics.getMeanServiceNanos(ETaskType.fromTaskName(task.getName()));
+        long slackNanos = task.getDeadlineNanos() - nowNanos;
+        if (slackNanos - expectedServiceNanos >= 0) {
+            return false;
+        }
+        MainApp.getStatusTracker().updateTaskStatusWithError(task.getId(), ETaskStatus.FAILED, workerName,
+                String.format("Deadline unreachable: %d ms left, ~%d ms needed",
+                        TimeUnit.NANOSECONDS.toMillis(slackNanos), TimeUnit.NANOSECONDS.toMillis(expectedServiceNanos)));
+        latencyMetrics.recordDeadlineShed();
+        if (log.isDebugEnabled()) {
+            log.debug("Worker {} shed task {}: deadline unreachable", workerName, task.getName());
+        }
+        return true;
+    }
+
+    /**
+     * Runs one processing attempt, throws when the handler fails
+     */
+    private void executeTask(Task task) throws Exception {
+        TaskHandler handler = handlerOverride != null
+                ? handlerOverride
+                : MainApp.getHandlerRegistry().handlerFor(task);
+        handler.handle(task);
+    }
+
+    /**
+     * The whole shared queue, or only this worker's task type when it is a bulkhead worker
+     */
+    private TaskQueue sourceQueue() {
+        TaskQueue queue = MainApp.getTaskQueue();
+        return partition != null ? queue.partition(partition) : queue;
+    }
+
+    /**
+     * Feeds the circuit breaker of the task's type, when breakers are on
+     */
+    private static void recordOutcome(Task task, boolean success) {
+        CircuitBreakerRegistry breakers = MainApp.getCircuitBreakers();
+        if (breakers == null) {
+            return;
+        }
+        if (success) {
+            breakers.recordSuccess(task);
+        } else {
+            breakers.recordFailure(task);
+        }
+    }
+
     private void handleTaskFailure(Task task, String errorMessage) {
         TaskStatusTracker statusTracker = MainApp.getStatusTracker();
+        // An interrupted worker says nothing about the downstream
+        if (!Thread.currentThread().isInterrupted()) {
+            recordOutcome(task, false);
+        }
 
         if (statusTracker.canRetry(task.getId())) {
             // Task can be retried
@@ -91,13 +400,15 @@ public class ConsumerWorker implements Runnable {
             statusTracker.updateTaskStatusWithError(
                     task.getId(), ETaskStatus.RETRYING, workerName, errorMessage);
 
-            // Re-queue the task for retry (at the end to maintain some fairness)
-            MainApp.getTaskQueue().offer(task);
+            // Hand the task to the retry scheduler, it is re-queued once its backoff expires
+            int attempt = statusTracker.getTaskStatus(task.getId()).getRetryCount();
+            long backoffMillis = MainApp.getRetryScheduler().schedule(task, attempt, localRetryTarget);
             MainApp.getTotalTasksRetried().incrementAndGet();
 
-            log.warn("Worker {} re-queued task {} for retry (attempt {})",
-                    workerName, task.getName(),
-                    statusTracker.getTaskStatus(task.getId()).getRetryCount());
+            if (log.isDebugEnabled()) {
+                log.debug("Worker {} scheduled task {} for retry (attempt {}) in {} ms",
+                        workerName, task.getName(), attempt, backoffMillis);
+            }
         } else {
             // Max retries exceeded, mark as permanently failed
             statusTracker.markTaskAsPermanentlyFailed(task.getId(), workerName, errorMessage);
@@ -107,12 +418,4 @@ public class ConsumerWorker implements Runnable {
                     MainApp.getMaxRetryAttempts());
         }
     }
-
-    private int calculateProcessingTime(int priority) {
-        // Higher priority (lower number) = faster processing
-        // Priority 1: 200-500ms, Priority 5: 800-1200ms
-        int baseTime = 200 + (priority * 150);
-        int variance = 300;
-        return baseTime + random.nextInt(variance);
-    }
 }
@@ -4,8 +4,9 @@ import prototype.ExecutorServiceDemo;
 import lombok.extern.slf4j.Slf4j;
 import model.ETaskStatus;
 import model.Task;
+import service.SimulatedTaskHandler;
+import service.TaskHandler;
 
-import java.util.Random;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -15,11 +16,12 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 public class TaskWorker implements Runnable {
     private final String workerName;
-    private final Random random;
+    // Priority 1: 350-650ms, Priority 5: 950-1250ms, 5% failures
+    private final TaskHandler handler = new SimulatedTaskHandler(200, 150, 300, 1.0, 5,
+            "Simulated processing failure");
 
     public TaskWorker(String workerName) {
         this.workerName = workerName;
-        this.random = new Random();
     }
 
     @Override
@@ -54,17 +56,7 @@ public class TaskWorker implements Runnable {
                 task.getId(), ETaskStatus.PROCESSING, workerName);
 
         try {
-            // Simulate processing time based on priority
-            int processingTime = calculateProcessingTime(task.getPriority());
-            log.info("Worker {} processing task {} for {} ms",
-                    workerName, task.getName(), processingTime);
-
-            Thread.sleep(processingTime);
-
-            // Simulate occasional failures (5% chance)
-            if (random.nextInt(100) < 5) {
-                throw new RuntimeException("Simulated processing failure");
-            }
+            handler.handle(task);
 
             // Success!
             ExecutorServiceDemo.getStatusTracker().updateTaskStatus(
@@ -87,12 +79,4 @@ public class TaskWorker implements Runnable {
                     workerName, task.getName(), e.getMessage());
         }
     }
-
-    private int calculateProcessingTime(int priority) {
-        // Higher priority (lower number) = faster processing
-        // Priority 1: 200-500ms, Priority 5: 800-1200ms
-        int baseTime = 200 + (priority * 150);
-        int variance = 300;
-        return baseTime + random.nextInt(variance);
-    }
 }
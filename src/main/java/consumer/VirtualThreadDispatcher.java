@@ -0,0 +1,113 @@
+package consumer;
+
+import lombok.extern.slf4j.Slf4j;
+import model.Task;
+import monitor.WorkerPoolMetrics;
+import prototype.MainApp;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Virtual-thread execution mode
+ * Dequeues tasks and runs each one on its own virtual thread, so blocking
+ * work no longer pins a platform worker. A semaphore caps the in-flight tasks.
+ */
+@Slf4j
+public class VirtualThreadDispatcher implements Runnable, WorkerPoolMetrics {
+
+    private final int maxInFlightTasks;
+    private final Semaphore inFlightPermits;
+    private final AtomicInteger inFlightTasks = new AtomicInteger(0);
+    private final AtomicLong completedTasks = new AtomicLong(0);
+    private final AtomicLong workerSequence = new AtomicLong(0);
+
+    public VirtualThreadDispatcher(int maxInFlightTasks) {
+        if (maxInFlightTasks < 1) {
+            throw new IllegalArgumentException("maxInFlightTasks must be positive");
+        }
+        this.maxInFlightTasks = maxInFlightTasks;
+        this.inFlightPermits = new Semaphore(maxInFlightTasks);
+    }
+
+    @Override
+    public void run() {
+        log.info("VirtualThreadDispatcher started - max {} tasks in flight", maxInFlightTasks);
+
+        ExecutorService virtualThreads = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("VirtualWorker-", 1).factory());
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                // Reserve a slot first, so we never hold a dequeued task we cannot run
+                inFlightPermits.acquire();
+
+                Task task = MainApp.getTaskQueue().poll(2, TimeUnit.SECONDS);
+                if (task == null) {
+                    inFlightPermits.release();
+                    log.debug("VirtualThreadDispatcher waiting for tasks...");
+                    continue;
+                }
+
+                dispatch(virtualThreads, task);
+            }
+        } catch (InterruptedException e) {
+            log.info("VirtualThreadDispatcher interrupted, stopping...");
+        } finally {
+            // Mirror the platform pool: interrupt in-flight tasks so they go through the failure path
+            virtualThreads.shutdownNow();
+            awaitInFlightTasks(virtualThreads);
+        }
+
+        log.info("VirtualThreadDispatcher finished. Completed {} tasks", completedTasks.get());
+    }
+
+    private void dispatch(ExecutorService virtualThreads, Task task) {
+        inFlightTasks.incrementAndGet();
+        String workerName = "VirtualWorker-" + workerSequence.incrementAndGet();
+        try {
+            virtualThreads.execute(() -> {
+                try {
+                    new ConsumerWorker(workerName).process(task);
+                } finally {
+                    inFlightTasks.decrementAndGet();
+                    completedTasks.incrementAndGet();
+                    inFlightPermits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlightTasks.decrementAndGet();
+            inFlightPermits.release();
+            MainApp.getTaskQueue().requeue(task);
+            throw e;
+        }
+    }
+
+    private void awaitInFlightTasks(ExecutorService virtualThreads) {
+        try {
+            if (!virtualThreads.awaitTermination(5, TimeUnit.SECONDS)) {
+                log.warn("VirtualThreadDispatcher still has {} tasks in flight", inFlightTasks.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public int getActiveCount() {
+        return inFlightTasks.get();
+    }
+
+    @Override
+    public int getPoolSize() {
+        return maxInFlightTasks;
+    }
+
+    @Override
+    public long getCompletedTaskCount() {
+        return completedTasks.get();
+    }
+}
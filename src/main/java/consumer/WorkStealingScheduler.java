@@ -0,0 +1,266 @@
+package consumer;
+
+import lombok.extern.slf4j.Slf4j;
+import model.Task;
+import queue.TaskQueue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Work-stealing execution: every worker owns a local run queue in front of the shared queue (ForkJoinPool style)
+ * - A worker serves its local run queue first, refills it with up to refillBatch tasks from the shared queue
+ *   when it is empty, and only then steals: half of another worker's local tasks, taken from the urgent end
+ * - Retries of a task go back to the local run queue of the worker that ran it, not to the shared queue
+ * - Local run queues keep the shared queue's ordering, and a worker that leaves hands its tasks back to it
+ *
+ * Priority bound: a worker only refills once its local run queue is empty, so a task arriving in the shared
+ * queue waits for at most refillBatch - 1 already claimed tasks (plus retries that came back locally) on
+ * whichever worker refills first, and is never queued behind more than workers * refillBatch claimed tasks.
+ * Inside a local run queue the order is the shared queue's order.
+ */
+@Slf4j
+public class WorkStealingScheduler {
+
+    // An idle worker blocked on the shared queue wakes this often to look for local retries and work to steal
+    private static final long RECHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private final TaskQueue sharedQueue;
+    private final int refillBatch;
+    private final List<LocalRunQueue> runQueues = new CopyOnWriteArrayList<>();
+
+    private final LongAdder refillCount = new LongAdder();
+    private final LongAdder stolenCount = new LongAdder();
+    private final LongAdder localRetryCount = new LongAdder();
+
+    public WorkStealingScheduler(TaskQueue sharedQueue, int refillBatch) {
+        if (refillBatch < 1) {
+            throw new IllegalArgumentException("refillBatch must be positive");
+        }
+        this.sharedQueue = sharedQueue;
+        this.refillBatch = refillBatch;
+    }
+
+    LocalRunQueue register(String owner) {
+        LocalRunQueue runQueue = new LocalRunQueue(owner, sharedQueue.comparator());
+        runQueues.add(runQueue);
+        return runQueue;
+    }
+
+    /**
+     * Closes the worker's run queue and puts the tasks it still held back on the shared queue
+     */
+    void deregister(LocalRunQueue runQueue) {
+        runQueues.remove(runQueue);
+        List<Task> leftovers = runQueue.close();
+        leftovers.forEach(sharedQueue::requeue);
+        if (!leftovers.isEmpty()) {
+            log.info("Worker {} handed {} local tasks back to the shared queue", runQueue.owner, leftovers.size());
+        }
+    }
+
+    /**
+     * Next task for the owner of the given run queue: local first, then a refill, then a steal
+     * @return the task, or null if none turned up within the timeout
+     */
+    Task take(LocalRunQueue self, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            Task task = self.poll();
+            if (task == null) {
+                task = refill(self);
+            }
+            if (task == null) {
+                task = steal(self);
+            }
+            if (task != null) {
+                return task;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            task = sharedQueue.poll(Math.min(remaining, RECHECK_NANOS), TimeUnit.NANOSECONDS);
+            if (task != null) {
+                return task;
+            }
+        }
+    }
+
+    /**
+     * Queues a retry on the run queue of the worker that ran the task, or the shared queue once that worker left
+     */
+    void requeueLocally(LocalRunQueue owner, Task task) {
+        if (owner.offer(task)) {
+            localRetryCount.increment();
+        } else {
+            sharedQueue.requeue(task);
+        }
+    }
+
+    private Task refill(LocalRunQueue self) {
+        List<Task> batch = new ArrayList<>(refillBatch);
+        if (sharedQueue.drainTo(batch, refillBatch) == 0) {
+            return null;
+        }
+        refillCount.increment();
+        if (batch.size() == 1) {
+            return batch.get(0);
+        }
+        self.addAll(batch);
+        return self.poll();
+    }
+
+    private Task steal(LocalRunQueue self) {
+        int count = runQueues.size();
+        if (count < 2) {
+            return null;
+        }
+        int start = ThreadLocalRandom.current().nextInt(count);
+        List<Task> stolen = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            LocalRunQueue victim = runQueues.get((start + i) % count);
+            if (victim == self || victim.size() == 0) {
+                continue;
+            }
+            victim.stealHalf(stolen);
+            if (!stolen.isEmpty()) {
+                stolenCount.add(stolen.size());
+                if (log.isDebugEnabled()) {
+                    log.debug("Worker {} stole {} tasks from {}", self.owner, stolen.size(), victim.owner);
+                }
+                Task first = stolen.get(0);
+                if (stolen.size() > 1) {
+                    self.addAll(stolen.subList(1, stolen.size()));
+                }
+                return first;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tasks currently held in local run queues, not counted by the shared queue's size()
+     */
+    public int getLocalTaskCount() {
+        int total = 0;
+        for (LocalRunQueue runQueue : runQueues) {
+            total += runQueue.size();
+        }
+        return total;
+    }
+
+    public long getRefillCount() {
+        return refillCount.sum();
+    }
+
+    public long getStolenCount() {
+        return stolenCount.sum();
+    }
+
+    public long getLocalRetryCount() {
+        return localRetryCount.sum();
+    }
+
+    public int getRefillBatch() {
+        return refillBatch;
+    }
+
+    /**
+     * One worker's run queue, ordered like the shared queue
+     * Guarded by its own lock, which is only contended when a thief or the retry dispatcher touches it.
+     */
+    static final class LocalRunQueue {
+        private final String owner;
+        private final PriorityQueue<Task> tasks;
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile int size;
+        private boolean closed;
+
+        private LocalRunQueue(String owner, Comparator<? super Task> comparator) {
+            this.owner = owner;
+            this.tasks = new PriorityQueue<>(comparator);
+        }
+
+        Task poll() {
+            if (size == 0) {
+                return null;
+            }
+            lock.lock();
+            try {
+                Task task = tasks.poll();
+                size = tasks.size();
+                return task;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return false once the owner has left
+         */
+        boolean offer(Task task) {
+            lock.lock();
+            try {
+                if (closed) {
+                    return false;
+                }
+                tasks.offer(task);
+                size = tasks.size();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void addAll(List<Task> batch) {
+            lock.lock();
+            try {
+                tasks.addAll(batch);
+                size = tasks.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Moves the most urgent half (rounded up) of the tasks into the sink
+         */
+        void stealHalf(List<Task> sink) {
+            lock.lock();
+            try {
+                int count = (tasks.size() + 1) / 2;
+                for (int i = 0; i < count; i++) {
+                    sink.add(tasks.poll());
+                }
+                size = tasks.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        List<Task> close() {
+            lock.lock();
+            try {
+                closed = true;
+                List<Task> leftovers = new ArrayList<>(tasks);
+                tasks.clear();
+                size = 0;
+                return leftovers;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package consumer;
+
+import lombok.extern.slf4j.Slf4j;
+import monitor.TaskLatencyMetrics;
+import monitor.WorkerPoolMetrics;
+import prototype.MainApp;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * Controller that sizes the ConsumerWorker pool between min and max workers
+ * Every evaluation interval it samples queue depth, arrival rate (submissions plus retries) and the
+ * mean service time of the tasks completed since the last sample, and estimates the workers needed:
+ *   required = arrivalRate * serviceTime + queueDepth * serviceTime / targetDrainTime
+ * i.e. enough busy workers to keep up with arrivals (Little's law) plus enough to clear the backlog in time.
+ *
+ * Hysteresis: the pool grows when required exceeds SCALE_UP_UTILIZATION of the current workers and shrinks
+ * when it drops below SCALE_DOWN_UTILIZATION, in both cases towards required / TARGET_UTILIZATION.
+ * Growing happens in one step, shrinking one worker at a time; each direction has its own cooldown.
+ * Retired workers finish their current task or batch before exiting.
+ */
+@Slf4j
+public class WorkerAutoscaler implements Runnable, WorkerPoolMetrics {
+
+    private static final double TARGET_UTILIZATION = 0.7;
+    private static final double SCALE_UP_UTILIZATION = 0.8;
+    private static final double SCALE_DOWN_UTILIZATION = 0.5;
+
+    private final int minWorkers;
+    private final int maxWorkers;
+    private final long evaluationIntervalNanos;
+    private final long scaleUpCooldownNanos;
+    private final long scaleDownCooldownNanos;
+    private final long targetDrainNanos;
+    private final IntFunction<ConsumerWorker> workerFactory;
+    private final ThreadPoolExecutor executor;
+
+    // Only touched by the controller thread
+    private final Deque<ConsumerWorker> workers = new ArrayDeque<>();
+    private int nextWorkerId = 1;
+    private long lastScaleNanos;
+    private long lastSampleNanos;
+    private long lastArrivals;
+    private long lastCompletions;
+    private long lastServiceNanos;
+    private double serviceTimeNanos = -1; // unknown until the first completions
+
+    // Read by MonitorThread
+    private volatile int currentWorkers;
+    private volatile double requiredWorkers;
+    private volatile double arrivalRate;
+    private final LongAdder scaleUpCount = new LongAdder();
+    private final LongAdder scaleDownCount = new LongAdder();
+
+    /**
+     * @param workerFactory builds the worker with the given sequence number, starting at 1
+     */
+    public WorkerAutoscaler(int minWorkers, int maxWorkers, Duration evaluationInterval, Duration scaleUpCooldown,
+                            Duration scaleDownCooldown, Duration targetDrainTime, IntFunction<ConsumerWorker> workerFactory) {
+        if (minWorkers < 1 || maxWorkers < minWorkers) {
+            throw new IllegalArgumentException("Need 1 <= minWorkers <= maxWorkers");
+        }
+        this.minWorkers = minWorkers;
+        this.maxWorkers = maxWorkers;
+        this.evaluationIntervalNanos = evaluationInterval.toNanos();
+        this.scaleUpCooldownNanos = scaleUpCooldown.toNanos();
+        this.scaleDownCooldownNanos = scaleDownCooldown.toNanos();
+        this.targetDrainNanos = targetDrainTime.toNanos();
+        this.workerFactory = workerFactory;
+        // Unbounded thread count: retiring workers may briefly overlap with new ones, the controller bounds the rest
+        this.executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 30, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                Thread.ofPlatform().name("Worker-thread-", 1).factory());
+    }
+
+    /**
+     * Starts the given number of workers, clamped to the bounds; call before running the controller
+     */
+    public void start(int initialWorkers) {
+        int initial = Math.max(minWorkers, Math.min(maxWorkers, initialWorkers));
+        addWorkers(initial);
+        lastScaleNanos = System.nanoTime();
+        log.info("Autoscaler started with {} workers (min {}, max {})", initial, minWorkers, maxWorkers);
+    }
+
+    @Override
+    public void run() {
+        takeSample(System.nanoTime());
+        try {
+            // The pool is shut down without interrupting its workers, so watch for that too
+            while (!Thread.currentThread().isInterrupted() && !executor.isShutdown()) {
+                TimeUnit.NANOSECONDS.sleep(evaluationIntervalNanos);
+                evaluate();
+            }
+        } catch (InterruptedException e) {
+            log.info("Autoscaler interrupted, stopping...");
+        } catch (RejectedExecutionException e) {
+            log.debug("Worker pool shut down while scaling up");
+        }
+        log.info("Autoscaler finished: scaled up {} times, down {} times, {} workers",
+                getScaleUpCount(), getScaleDownCount(), currentWorkers);
+    }
+
+    private void evaluate() {
+        long now = System.nanoTime();
+        long elapsedNanos = now - lastSampleNanos;
+        long arrivals = lastArrivals;
+        takeSample(now);
+        if (elapsedNanos <= 0) {
+            return;
+        }
+        arrivalRate = (lastArrivals - arrivals) * 1e9 / elapsedNanos;
+        if (serviceTimeNanos < 0) {
+            log.debug("Autoscaler waiting for the first completions to estimate service time");
+            return;
+        }
+
+        int queueDepth = MainApp.getTaskQueue().size();
+        double required = arrivalRate * serviceTimeNanos / 1e9 + (double) queueDepth * serviceTimeNanos / targetDrainNanos;
+        requiredWorkers = required;
+
+        int current = workers.size();
+        int target = Math.max(minWorkers, Math.min(maxWorkers, (int) Math.ceil(required / TARGET_UTILIZATION)));
+        long sinceLastScale = now - lastScaleNanos;
+
+        if (required > current * SCALE_UP_UTILIZATION && target > current && sinceLastScale >= scaleUpCooldownNanos) {
+            log.info("📐 Scaling up {} -> {} workers (queue {}, arrival {}/s, service {} ms, required {})",
+                    current, target, queueDepth, format(arrivalRate), format(serviceTimeNanos / 1e6), format(required));
+            addWorkers(target - current);
+            scaleUpCount.increment();
+            lastScaleNanos = now;
+        } else if (required < current * SCALE_DOWN_UTILIZATION && target < current
+                && sinceLastScale >= scaleDownCooldownNanos) {
+            log.info("📐 Scaling down {} -> {} workers (queue {}, arrival {}/s, service {} ms, required {})",
+                    current, current - 1, queueDepth, format(arrivalRate), format(serviceTimeNanos / 1e6), format(required));
+            retireWorker();
+            scaleDownCount.increment();
+            lastScaleNanos = now;
+        }
+    }
+
+    private void takeSample(long now) {
+        lastSampleNanos = now;
+        lastArrivals = (long) MainApp.getTotalTasksSubmitted().get() + MainApp.getTotalTasksRetried().get();
+
+        TaskLatencyMetrics metrics = MainApp.getLatencyMetrics();
+        long completions = metrics.getCompletedCount();
+        long serviceNanos = metrics.getTotalServiceNanos();
+        if (completions > lastCompletions) {
+            // Keep the previous estimate through intervals without completions
+            serviceTimeNanos = (double) (serviceNanos - lastServiceNanos) / (completions - lastCompletions);
+        }
+        lastCompletions = completions;
+        lastServiceNanos = serviceNanos;
+    }
+
+    private void addWorkers(int count) {
+        for (int i = 0; i < count; i++) {
+            ConsumerWorker worker = workerFactory.apply(nextWorkerId++);
+            executor.execute(worker);
+            workers.addLast(worker);
+        }
+        currentWorkers = workers.size();
+    }
+
+    private void retireWorker() {
+        // Newest first, so long-lived worker names stay stable in the logs
+        ConsumerWorker worker = workers.pollLast();
+        if (worker != null) {
+            worker.retire();
+            log.debug("Retiring worker {}", worker.getWorkerName());
+        }
+        currentWorkers = workers.size();
+    }
+
+    private static String format(double value) {
+        return String.format("%.1f", value);
+    }
+
+    /**
+     * The pool running the workers, for shutdown
+     */
+    public ThreadPoolExecutor getExecutor() {
+        return executor;
+    }
+
+    @Override
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Workers the controller currently keeps, excluding retired ones still finishing a task
+     */
+    @Override
+    public int getPoolSize() {
+        return currentWorkers;
+    }
+
+    @Override
+    public long getCompletedTaskCount() {
+        return executor.getCompletedTaskCount();
+    }
+
+    public int getMinWorkers() {
+        return minWorkers;
+    }
+
+    public int getMaxWorkers() {
+        return maxWorkers;
+    }
+
+    /**
+     * Busy workers needed at the last evaluation, before the utilization target and bounds are applied
+     */
+    public double getRequiredWorkers() {
+        return requiredWorkers;
+    }
+
+    public double getArrivalRate() {
+        return arrivalRate;
+    }
+
+    public long getScaleUpCount() {
+        return scaleUpCount.sum();
+    }
+
+    public long getScaleDownCount() {
+        return scaleDownCount.sum();
+    }
+}
@@ -5,5 +5,25 @@ public enum ETaskStatus {
     PROCESSING,   // Task picked up by worker thread
     COMPLETED,    // Task processed successfully
     FAILED,       // Task failed permanently (after all retries)
-    RETRYING      // Task failed but will be retried
+    RETRYING;     // Task failed but will be retried
+
+    /**
+     * Allowed transitions; staying in the same non-terminal status is allowed (e.g. a new error message)
+     * - SUBMITTED -> PROCESSING, or FAILED when shed before running
+     * - PROCESSING -> COMPLETED, RETRYING, FAILED, or SUBMITTED when a worker hands it back unstarted
+     * - RETRYING -> PROCESSING once re-queued and picked up, SUBMITTED, or FAILED when shed before running
+     * - COMPLETED and FAILED are terminal
+     */
+    public boolean canTransitionTo(ETaskStatus next) {
+        return switch (this) {
+            case SUBMITTED -> next == SUBMITTED || next == PROCESSING || next == FAILED;
+            case PROCESSING -> true;
+            case RETRYING -> next != COMPLETED;
+            case COMPLETED, FAILED -> false;
+        };
+    }
+
+    public boolean isTerminal() {
+        return this == COMPLETED || this == FAILED;
+    }
 }
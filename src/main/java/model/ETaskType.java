@@ -0,0 +1,25 @@
+package model;
+
+public enum ETaskType {
+    PAYMENT,      // Tasks from PaymentTaskProducer ("Payment-...")
+    EMAIL,        // Tasks from EmailTaskProducer ("Email-...")
+    MAINTENANCE,  // Tasks from MaintenanceTaskProducer ("Maintenance-...")
+    OTHER;        // Anything else (benchmarks, demos)
+
+    private static final ETaskType[] PRODUCER_TYPES = {PAYMENT, EMAIL, MAINTENANCE};
+    private static final String[] NAME_PREFIXES = {"Payment-", "Email-", "Maintenance-"};
+
+    /**
+     * Derives the producer type from the task name prefix each producer uses
+     */
+    public static ETaskType fromTaskName(String name) {
+        if (name != null) {
+            for (int i = 0; i < NAME_PREFIXES.length; i++) {
+                if (name.startsWith(NAME_PREFIXES[i])) {
+                    return PRODUCER_TYPES[i];
+                }
+            }
+        }
+        return OTHER;
+    }
+}
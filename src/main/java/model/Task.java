@@ -2,6 +2,7 @@ package model;
 
 import lombok.*;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.UUID;
 
@@ -10,19 +11,105 @@ import java.util.UUID;
 @AllArgsConstructor
 @Builder
 public class Task implements Comparable<Task> {
-    private UUID id;
+    // Wall-clock anchor used to turn createdNanos into an Instant on demand
+    private static final long EPOCH_NANOS_AT_START =
+            System.currentTimeMillis() * 1_000_000L - System.nanoTime();
+
+    private long sequence;
+    private long createdNanos;
     private String name;
     private int priority;
+    private TaskPayload payload;
+    // Optional business key (e.g. a payment id); resends with the same key can be coalesced while one is live
+    private String idempotencyKey;
+    // Optional completion deadline as a budget counted from createdNanos, 0 for none
+    private long slaNanos;
+
+    // Compatibility views, derived lazily from sequence and createdNanos unless set explicitly
+    @Getter(AccessLevel.NONE)
+    private UUID id;
+    @Getter(AccessLevel.NONE)
     private Instant createdTimestamp;
-    private String payload;
 
-    // Constructor for easy task creation (auto-generates ID and timestamp)
-    public Task(String name, int priority, String payload) {
-        this.id = UUID.randomUUID();
+    // Constructor for easy task creation (auto-generates sequence and creation time)
+    public Task(String name, int priority, TaskPayload payload) {
+        this(name, priority, payload, null);
+    }
+
+    public Task(String name, int priority, TaskPayload payload, String idempotencyKey) {
+        this(name, priority, payload, idempotencyKey, null);
+    }
+
+    /**
+     * @param sla time from creation by which the task should complete, null for no deadline
+     */
+    public Task(String name, int priority, TaskPayload payload, String idempotencyKey, Duration sla) {
+        if (sla != null && (sla.isNegative() || sla.isZero())) {
+            throw new IllegalArgumentException("sla must be positive");
+        }
+        this.sequence = TaskSequence.next();
+        this.createdNanos = System.nanoTime();
         this.name = name;
         this.priority = priority;
-        this.createdTimestamp = Instant.now();
         this.payload = payload;
+        this.idempotencyKey = idempotencyKey;
+        this.slaNanos = sla == null ? 0 : sla.toNanos();
+    }
+
+    /**
+     * Takes the legacy "k=v,k=v" text payload, stored as STRING fields
+     */
+    public Task(String name, int priority, String payload) {
+        this(name, priority, payload == null ? null : TaskPayload.parse(payload));
+    }
+
+    /**
+     * "k=v,k=v" view of the payload, rendered on first use
+     */
+    public String getPayloadText() {
+        return payload == null ? null : payload.toString();
+    }
+
+    public boolean hasDeadline() {
+        return slaNanos > 0;
+    }
+
+    /**
+     * System.nanoTime() by which the task should complete; only meaningful when hasDeadline()
+     */
+    public long getDeadlineNanos() {
+        return createdNanos + slaNanos;
+    }
+
+    /**
+     * UUID view of the task identity, derived from the sequence on first use
+     * The race on the cached field is benign: every thread derives the same value.
+     */
+    public UUID getId() {
+        UUID uuid = id;
+        if (uuid == null) {
+            uuid = TaskSequence.toUuid(sequence);
+            id = uuid;
+        }
+        return uuid;
+    }
+
+    /**
+     * First 8 hex digits of the UUID view, for log lines
+     * Built on demand, so callers should only use it inside an enabled log statement
+     */
+    public String getShortId() {
+        return getId().toString().substring(0, 8);
+    }
+
+    public Instant getCreatedTimestamp() {
+        Instant timestamp = createdTimestamp;
+        if (timestamp == null) {
+            long epochNanos = EPOCH_NANOS_AT_START + createdNanos;
+            timestamp = Instant.ofEpochSecond(0, epochNanos);
+            createdTimestamp = timestamp;
+        }
+        return timestamp;
     }
 
     @Override
@@ -33,12 +120,18 @@ public class Task implements Comparable<Task> {
             return priorityComparison;
         }
 
-        return this.createdTimestamp.compareTo(other.createdTimestamp);
+        // FIFO within a priority: creation time, then sequence for tasks created in the same nanosecond
+        // (compared by difference, as nanoTime values are only meaningful relative to each other)
+        int timeComparison = Long.compare(this.createdNanos - other.createdNanos, 0L);
+        if (timeComparison != 0) {
+            return timeComparison;
+        }
+        return Long.compare(this.sequence, other.sequence);
     }
 
     @Override
     public String toString() {
         return String.format("Task{id=%s, name='%s', priority=%d, created=%s, payload='%s'}",
-                id.toString().substring(0, 8) + "...", name, priority, createdTimestamp, payload);
+                getShortId() + "...", name, priority, getCreatedTimestamp(), payload);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,380 @@
+package model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable key/value task payload in a compact binary encoding
+ * Fields are stored back to back in one byte array:
+ *   key length (1 byte) | ASCII key | type (1 byte) | value
+ * with LONG and DOUBLE as 8 big-endian bytes, BOOLEAN as 1 byte and STRING as a 2-byte length plus UTF-8.
+ * DECIMAL is a DOUBLE followed by a 1-byte scale, the number of decimals it is rendered with (e.g. amounts).
+ *
+ * Typed getters find a field by scanning the array and decode it in place, so reading a number never
+ * allocates; getString has to build the String. The "k=v,k=v" text form is rendered on first use
+ * of toString() and cached, it is only needed for logs.
+ */
+public final class TaskPayload {
+
+    private static final byte TYPE_LONG = 1;
+    private static final byte TYPE_DOUBLE = 2;
+    private static final byte TYPE_BOOLEAN = 3;
+    private static final byte TYPE_STRING = 4;
+    private static final byte TYPE_DECIMAL = 5;
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final int MAX_STRING_BYTES = 0xFFFF;
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final byte[] data;
+    private String text;
+
+    private TaskPayload(byte[] data) {
+        this.data = data;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builds a payload from the legacy "k=v,k=v" text form, every value as a STRING field
+     * A token without '=' is kept as a value with an empty key, so the text renders back unchanged.
+     */
+    public static TaskPayload parse(String text) {
+        Builder builder = new Builder();
+        int start = 0;
+        while (true) {
+            int end = text.indexOf(',', start);
+            String token = end < 0 ? text.substring(start) : text.substring(start, end);
+            int separator = token.indexOf('=');
+            if (separator > 0 && isAsciiKey(token, separator)) {
+                builder.putString(token.substring(0, separator), token.substring(separator + 1));
+            } else {
+                builder.putString("", token);
+            }
+            if (end < 0) {
+                break;
+            }
+            start = end + 1;
+        }
+        TaskPayload payload = builder.build();
+        payload.text = text;
+        return payload;
+    }
+
+    /**
+     * Reads an encoded payload of the given length, e.g. one written by writeTo
+     * @throws IllegalArgumentException if the bytes are not a valid encoding
+     */
+    public static TaskPayload readFrom(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        for (int pos = 0; pos < bytes.length; ) {
+            int valueStart = pos + 1 + (bytes[pos] & 0xFF) + 1;
+            if (valueStart > bytes.length) {
+                throw new IllegalArgumentException("Truncated payload field at offset " + pos);
+            }
+            pos = valueStart + valueLength(bytes, valueStart - 1);
+            if (pos > bytes.length) {
+                throw new IllegalArgumentException("Truncated payload value at offset " + valueStart);
+            }
+        }
+        return new TaskPayload(bytes);
+    }
+
+    public void writeTo(ByteBuffer buffer) {
+        buffer.put(data);
+    }
+
+    /**
+     * Size of the binary encoding in bytes
+     */
+    public int encodedSize() {
+        return data.length;
+    }
+
+    public boolean has(String key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Reads a LONG field; a STRING field holding a decimal integer (parsed payloads) is also accepted
+     * @throws NoSuchElementException if the field is missing
+     * @throws IllegalStateException if the field holds another type
+     */
+    public long getLong(String key) {
+        int typePos = require(key);
+        return switch (data[typePos]) {
+            case TYPE_LONG -> (long) LONG_VIEW.get(data, typePos + 1);
+            case TYPE_STRING -> parseLong(typePos + 3, stringLength(typePos), key);
+            default -> throw wrongType(key, "long");
+        };
+    }
+
+    public long getLong(String key, long defaultValue) {
+        return has(key) ? getLong(key) : defaultValue;
+    }
+
+    /**
+     * Reads a DOUBLE, DECIMAL or LONG field; a STRING field is parsed, which allocates
+     */
+    public double getDouble(String key) {
+        int typePos = require(key);
+        return switch (data[typePos]) {
+            case TYPE_DOUBLE, TYPE_DECIMAL -> Double.longBitsToDouble((long) LONG_VIEW.get(data, typePos + 1));
+            case TYPE_LONG -> (long) LONG_VIEW.get(data, typePos + 1);
+            case TYPE_STRING -> Double.parseDouble(decodeString(typePos));
+            default -> throw wrongType(key, "double");
+        };
+    }
+
+    public boolean getBoolean(String key) {
+        int typePos = require(key);
+        return switch (data[typePos]) {
+            case TYPE_BOOLEAN -> data[typePos + 1] != 0;
+            case TYPE_STRING -> Boolean.parseBoolean(decodeString(typePos));
+            default -> throw wrongType(key, "boolean");
+        };
+    }
+
+    /**
+     * Reads any field as a String, rendering numbers and booleans like toString()
+     */
+    public String getString(String key) {
+        return renderValue(require(key));
+    }
+
+    /**
+     * Offset of the field's type byte, or -1
+     */
+    private int find(String key) {
+        int keyLength = key.length();
+        int pos = 0;
+        while (pos < data.length) {
+            int length = data[pos] & 0xFF;
+            int typePos = pos + 1 + length;
+            if (length == keyLength && keyMatches(pos + 1, key)) {
+                return typePos;
+            }
+            pos = typePos + 1 + valueLength(data, typePos);
+        }
+        return -1;
+    }
+
+    private boolean keyMatches(int offset, String key) {
+        for (int i = 0; i < key.length(); i++) {
+            if (data[offset + i] != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int require(String key) {
+        int typePos = find(key);
+        if (typePos < 0) {
+            throw new NoSuchElementException("No payload field '" + key + "'");
+        }
+        return typePos;
+    }
+
+    private static int valueLength(byte[] bytes, int typePos) {
+        return switch (bytes[typePos]) {
+            case TYPE_LONG, TYPE_DOUBLE -> 8;
+            case TYPE_DECIMAL -> 9;
+            case TYPE_BOOLEAN -> 1;
+            case TYPE_STRING -> {
+                if (typePos + 3 > bytes.length) {
+                    throw new IllegalArgumentException("Truncated payload string at offset " + typePos);
+                }
+                yield 2 + (((bytes[typePos + 1] & 0xFF) << 8) | (bytes[typePos + 2] & 0xFF));
+            }
+            default -> throw new IllegalArgumentException("Unknown payload field type " + bytes[typePos]);
+        };
+    }
+
+    private int stringLength(int typePos) {
+        return ((data[typePos + 1] & 0xFF) << 8) | (data[typePos + 2] & 0xFF);
+    }
+
+    private String decodeString(int typePos) {
+        return new String(data, typePos + 3, stringLength(typePos), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Accumulates negatively, so Long.MIN_VALUE parses; a value out of long range is not a number either
+     */
+    private long parseLong(int offset, int length, String key) {
+        boolean negative = length > 0 && data[offset] == '-';
+        int i = negative ? 1 : 0;
+        if (i == length) {
+            throw wrongType(key, "number");
+        }
+        long value = 0;
+        try {
+            for (; i < length; i++) {
+                int digit = data[offset + i] - '0';
+                if (digit < 0 || digit > 9) {
+                    throw wrongType(key, "number");
+                }
+                value = Math.subtractExact(Math.multiplyExact(value, 10), digit);
+            }
+            return negative ? value : Math.negateExact(value);
+        } catch (ArithmeticException e) {
+            throw wrongType(key, "number");
+        }
+    }
+
+    private static IllegalStateException wrongType(String key, String expected) {
+        return new IllegalStateException("Payload field '" + key + "' is not a " + expected);
+    }
+
+    private String renderValue(int typePos) {
+        return switch (data[typePos]) {
+            case TYPE_LONG -> Long.toString((long) LONG_VIEW.get(data, typePos + 1));
+            case TYPE_DOUBLE -> Double.toString(Double.longBitsToDouble((long) LONG_VIEW.get(data, typePos + 1)));
+            case TYPE_DECIMAL -> BigDecimal.valueOf(Double.longBitsToDouble((long) LONG_VIEW.get(data, typePos + 1)))
+                    .setScale(data[typePos + 9], RoundingMode.HALF_UP)
+                    .toPlainString();
+            case TYPE_BOOLEAN -> Boolean.toString(data[typePos + 1] != 0);
+            default -> decodeString(typePos);
+        };
+    }
+
+    private static boolean isAsciiKey(String key, int length) {
+        if (length > MAX_KEY_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key.charAt(i) > 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Text form "k=v,k=v", rendered once; the race on the cached field is benign
+     */
+    @Override
+    public String toString() {
+        String rendered = text;
+        if (rendered == null) {
+            StringBuilder out = new StringBuilder(data.length + 16);
+            int pos = 0;
+            while (pos < data.length) {
+                int keyLength = data[pos] & 0xFF;
+                int typePos = pos + 1 + keyLength;
+                if (pos > 0) {
+                    out.append(',');
+                }
+                if (keyLength > 0) {
+                    out.append(new String(data, pos + 1, keyLength, StandardCharsets.US_ASCII)).append('=');
+                }
+                out.append(renderValue(typePos));
+                pos = typePos + 1 + valueLength(data, typePos);
+            }
+            rendered = out.toString();
+            text = rendered;
+        }
+        return rendered;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof TaskPayload payload && Arrays.equals(data, payload.data);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(data);
+    }
+
+    /**
+     * Appends fields in call order; keys must be ASCII and at most 255 characters
+     * Keys are not de-duplicated, lookups return the first field with the key.
+     */
+    public static final class Builder {
+        private byte[] buffer = new byte[64];
+        private int size;
+
+        private Builder() {
+        }
+
+        public Builder putLong(String key, long value) {
+            int pos = putHeader(key, TYPE_LONG, 8);
+            LONG_VIEW.set(buffer, pos, value);
+            return this;
+        }
+
+        public Builder putDouble(String key, double value) {
+            int pos = putHeader(key, TYPE_DOUBLE, 8);
+            LONG_VIEW.set(buffer, pos, Double.doubleToRawLongBits(value));
+            return this;
+        }
+
+        /**
+         * A double rendered with a fixed number of decimals, e.g. scale 2 for amounts ("523.40")
+         */
+        public Builder putDecimal(String key, double value, int scale) {
+            if (scale < 0 || scale > Byte.MAX_VALUE) {
+                throw new IllegalArgumentException("scale must be in 0.." + Byte.MAX_VALUE);
+            }
+            int pos = putHeader(key, TYPE_DECIMAL, 9);
+            LONG_VIEW.set(buffer, pos, Double.doubleToRawLongBits(value));
+            buffer[pos + 8] = (byte) scale;
+            return this;
+        }
+
+        public Builder putBoolean(String key, boolean value) {
+            int pos = putHeader(key, TYPE_BOOLEAN, 1);
+            buffer[pos] = (byte) (value ? 1 : 0);
+            return this;
+        }
+
+        public Builder putString(String key, String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > MAX_STRING_BYTES) {
+                throw new IllegalArgumentException("Payload value for '" + key + "' exceeds " + MAX_STRING_BYTES + " bytes");
+            }
+            int pos = putHeader(key, TYPE_STRING, 2 + bytes.length);
+            buffer[pos] = (byte) (bytes.length >>> 8);
+            buffer[pos + 1] = (byte) bytes.length;
+            System.arraycopy(bytes, 0, buffer, pos + 2, bytes.length);
+            return this;
+        }
+
+        public TaskPayload build() {
+            return new TaskPayload(Arrays.copyOf(buffer, size));
+        }
+
+        /**
+         * Writes key and type, returns the offset of the value
+         */
+        private int putHeader(String key, byte type, int valueLength) {
+            if (!isAsciiKey(key, key.length())) {
+                throw new IllegalArgumentException("Payload key must be ASCII, at most " + MAX_KEY_LENGTH + " chars: " + key);
+            }
+            int needed = size + 1 + key.length() + 1 + valueLength;
+            if (needed > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(needed, buffer.length * 2));
+            }
+            buffer[size++] = (byte) key.length();
+            for (int i = 0; i < key.length(); i++) {
+                buffer[size++] = (byte) key.charAt(i);
+            }
+            buffer[size++] = type;
+            int valueStart = size;
+            size += valueLength;
+            return valueStart;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package model;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Striped 64-bit task sequence generator
+ * Each thread reserves a block of ids from one shared counter and hands them out locally,
+ * so the shared counter is touched once per BLOCK_SIZE tasks instead of once per task.
+ * Ids are unique and increase monotonically per thread; across threads they only
+ * follow block order, which is why Task ordering compares creation time first.
+ */
+public final class TaskSequence {
+
+    private static final int BLOCK_SIZE = 1024;
+    private static final long UUID_VERSION_8 = 0x8000L;
+    private static final long UUID_VARIANT = 0x8000_0000_0000_0000L;
+
+    private static final AtomicLong nextBlockStart = new AtomicLong(1);
+    private static final ThreadLocal<long[]> localBlock = ThreadLocal.withInitial(() -> new long[2]);
+
+    private TaskSequence() {
+    }
+
+    public static long next() {
+        long[] block = localBlock.get(); // [next id, block end]
+        if (block[0] == block[1]) {
+            long start = nextBlockStart.getAndAdd(BLOCK_SIZE);
+            block[0] = start;
+            block[1] = start + BLOCK_SIZE;
+        }
+        return block[0]++;
+    }
+
+    /**
+     * Makes sure future ids are greater than the given one (e.g. after recovering tasks)
+     * Only affects blocks reserved after the call.
+     */
+    public static void advancePast(long sequence) {
+        nextBlockStart.accumulateAndGet(sequence + 1, Math::max);
+    }
+
+    /**
+     * Derives the compatibility UUID for a sequence number
+     * The low half carries the sequence (unique), the high half a scrambled copy so that
+     * short UUID prefixes in logs still tell tasks apart.
+     */
+    public static UUID toUuid(long sequence) {
+        long msb = (mix(sequence) & ~0xF000L) | UUID_VERSION_8;
+        long lsb = (sequence & ~0xC000_0000_0000_0000L) | UUID_VARIANT;
+        return new UUID(msb, lsb);
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -4,28 +4,41 @@ import lombok.*;
 import java.time.Instant;
 import java.util.UUID;
 
-@Data
-@NoArgsConstructor
+/**
+ * Immutable status record of one task
+ * Every change builds a new record, which TaskStatusTracker swaps in atomically, so a reader always sees
+ * one consistent state. Equality is identity, which lets the tracker detect a swap by reference.
+ */
+@Getter
+@ToString
 @AllArgsConstructor
-@Builder
-public class TaskStatusInfo {
-    private UUID taskId;
-    private ETaskStatus status;
-    private String processingThreadName;
-    private Instant statusUpdatedAt;
-    private int retryCount;
-    private String errorMessage;
+public final class TaskStatusInfo {
+    private final UUID taskId;
+    private final ETaskStatus status;
+    private final String processingThreadName;
+    private final Instant statusUpdatedAt;
+    private final int retryCount;
+    private final String errorMessage;
 
     public TaskStatusInfo(UUID taskId, ETaskStatus status, String threadName) {
-        this.taskId = taskId;
-        this.status = status;
-        this.processingThreadName = threadName;
-        this.statusUpdatedAt = Instant.now();
-        this.retryCount = 0;
+        this(taskId, status, threadName, Instant.now(), 0, null);
     }
 
-    public void incrementRetryCount() {
-        this.retryCount++;
-        this.statusUpdatedAt = Instant.now();
+    /**
+     * Same task in a new status; retry count and last error are kept
+     */
+    public TaskStatusInfo withStatus(ETaskStatus newStatus, String threadName, Instant updatedAt) {
+        return new TaskStatusInfo(taskId, newStatus, threadName, updatedAt, retryCount, errorMessage);
+    }
+
+    public TaskStatusInfo withStatus(ETaskStatus newStatus, String threadName, Instant updatedAt, String error) {
+        return new TaskStatusInfo(taskId, newStatus, threadName, updatedAt, retryCount, error);
+    }
+
+    /**
+     * Same task moved to RETRYING with one more retry counted
+     */
+    public TaskStatusInfo withRetry(String threadName, Instant updatedAt) {
+        return new TaskStatusInfo(taskId, ETaskStatus.RETRYING, threadName, updatedAt, retryCount + 1, errorMessage);
     }
 }
@@ -0,0 +1,144 @@
+package monitor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear latency histogram with microsecond resolution
+ * - Each power of two is split into 32 linear sub-buckets, so a recorded value is
+ *   reported with at most ~3% error; values up to ~19 hours fit, longer ones are clamped
+ * - Recording is one atomic increment plus a max update, no locks and no allocation
+ * - Counts are cumulative; intervalSnapshot() returns the difference since its previous
+ *   call, which gives an interval view without resetting what concurrent writers see
+ *
+ * intervalSnapshot() keeps state between calls and is meant for a single reporting thread.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 36; // 2^36 us ~ 19 hours
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+    private static final long MAX_TRACKABLE_MICROS = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong maxMicros = new AtomicLong();
+    private final AtomicLong intervalMaxMicros = new AtomicLong();
+
+    // Reporting thread only
+    private long[] lastIntervalCounts = new long[BUCKET_COUNT];
+
+    public void recordNanos(long nanos) {
+        long micros = Math.min(MAX_TRACKABLE_MICROS, Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)));
+        counts.incrementAndGet(bucketIndex(micros));
+        updateMax(maxMicros, micros);
+        updateMax(intervalMaxMicros, micros);
+    }
+
+    /**
+     * Everything recorded since the histogram was created
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(copyCounts(), maxMicros.get());
+    }
+
+    /**
+     * Everything recorded since the previous call (or creation), then starts a new interval
+     */
+    public Snapshot intervalSnapshot() {
+        long[] current = copyCounts();
+        long[] interval = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            interval[i] = current[i] - lastIntervalCounts[i];
+        }
+        lastIntervalCounts = current;
+        return new Snapshot(interval, intervalMaxMicros.getAndSet(0));
+    }
+
+    private long[] copyCounts() {
+        long[] copy = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+        }
+        return copy;
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+
+    static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKET_COUNT) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (micros >>> shift) - SUB_BUCKET_COUNT;
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * Highest value that falls into the given bucket
+     */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long subBucket = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Immutable view of the histogram at one point in time
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long totalCount;
+        private final long maxMicros;
+
+        private Snapshot(long[] counts, long maxMicros) {
+            this.counts = counts;
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            this.totalCount = total;
+            this.maxMicros = maxMicros;
+        }
+
+        public long getTotalCount() {
+            return totalCount;
+        }
+
+        public long getMaxMicros() {
+            return maxMicros;
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return the value at the given percentile in microseconds, or 0 without samples
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (totalCount == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * totalCount));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    // Never report more than the largest value actually recorded
+                    return Math.min(bucketUpperBound(i), maxMicros);
+                }
+            }
+            return maxMicros;
+        }
+    }
+}
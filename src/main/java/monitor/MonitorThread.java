@@ -1,9 +1,17 @@
 package monitor;
 
+import consumer.WorkStealingScheduler;
+import consumer.WorkerAutoscaler;
 import lombok.extern.slf4j.Slf4j;
+import model.ETaskStatus;
+import model.ETaskType;
 import prototype.MainApp;
+import queue.TaskSlabStore;
+import service.CircuitBreaker;
+import service.CircuitBreakerRegistry;
 
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Function;
 
 /**
  * Simple Monitoring Thread
@@ -12,14 +20,29 @@ import java.util.concurrent.ThreadPoolExecutor;
  * - Active thread count
  * - Processed task count
  * - Additional useful metrics
+ * - Queue wait, service and end-to-end latency percentiles per priority and producer type,
+ *   for the last interval and since startup
+ * - Autoscaler state and decisions when the worker pool is autoscaled
+ * - Circuit breaker state per task type, when breakers are on
+ * - Deadline misses (late completions and shed tasks) and the slack left by on-time completions
  */
 @Slf4j
 public class MonitorThread implements Runnable {
 
-    private final ThreadPoolExecutor workerPool;
+    private final WorkerPoolMetrics workerPool;
     private final int monitoringIntervalSeconds;
 
+    // Totals at the previous report, for the aggregated activity line
+    private int lastSubmittedCount;
+    private int lastProcessedCount;
+    private int lastRetriedCount;
+    private long lastFailedCount;
+
     public MonitorThread(ThreadPoolExecutor workerPool) {
+        this(WorkerPoolMetrics.of(workerPool));
+    }
+
+    public MonitorThread(WorkerPoolMetrics workerPool) {
         this.workerPool = workerPool;
         this.monitoringIntervalSeconds = 5; // Log every 5 seconds
     }
@@ -67,35 +90,169 @@ public class MonitorThread implements Runnable {
                 queueSize, activeThreadCount, totalThreadPoolSize);
         log.info("✅ Tasks Processed: {} | Submitted: {} | Retried: {}",
                 processedCount, submittedCount, retriedCount);
-        log.info("🏭 ThreadPool Completed Tasks: {}", completedTaskCount);
+        log.info("🏭 Worker Pool Completed Tasks: {}", completedTaskCount);
+        if (workerPool instanceof WorkerAutoscaler autoscaler) {
+            log.info("📐 Autoscaler: {} workers ({}-{}) | required {} | arrival {}/s | scaled up {}x, down {}x",
+                    autoscaler.getPoolSize(), autoscaler.getMinWorkers(), autoscaler.getMaxWorkers(),
+                    String.format("%.1f", autoscaler.getRequiredWorkers()),
+                    String.format("%.1f", autoscaler.getArrivalRate()),
+                    autoscaler.getScaleUpCount(), autoscaler.getScaleDownCount());
+        }
         log.info("📈 Task Status Breakdown: {}", statusSummary);
-        log.info("💡 Processing Rate: {:.1f}% | Retry Rate: {:.1f}%",
-                calculateProcessingRate(processedCount, submittedCount),
-                calculateRetryRate(retriedCount, submittedCount));
+        logCircuitBreakers();
+        logWorkStealing();
+        logOffHeapStorage();
+        logActivitySinceLastReport(submittedCount, processedCount, retriedCount);
+        log.info("💡 Processing Rate: {}% | Retry Rate: {}%",
+                String.format("%.1f", calculateProcessingRate(processedCount, submittedCount)),
+                String.format("%.1f", calculateRetryRate(retriedCount, submittedCount)));
+        logLatencies();
+        logDeadlines();
         log.info("📊 ===============================");
     }
 
+    private void logWorkStealing() {
+        WorkStealingScheduler stealing = MainApp.getWorkStealingScheduler();
+        if (stealing == null) {
+            return;
+        }
+        log.info("🪝 Work stealing: {} tasks held locally | refills {} | stolen {} | local retries {}",
+                stealing.getLocalTaskCount(), stealing.getRefillCount(), stealing.getStolenCount(),
+                stealing.getLocalRetryCount());
+    }
+
+    private void logOffHeapStorage() {
+        TaskSlabStore store = MainApp.getTaskSlabStore();
+        if (store == null) {
+            return;
+        }
+        Runtime runtime = Runtime.getRuntime();
+        log.info("🧊 Off-heap: {} tasks in {} KiB of slots ({} KiB reserved, {} on heap) | status records {} KiB | heap used {} MiB",
+                store.getStoredCount(), store.getUsedBytes() / 1024, store.getReservedBytes() / 1024,
+                store.getOverflowCount(), MainApp.getStatusTracker().getOffHeapReservedBytes() / 1024,
+                (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024));
+    }
+
+    private void logCircuitBreakers() {
+        CircuitBreakerRegistry breakers = MainApp.getCircuitBreakers();
+        if (breakers == null) {
+            return;
+        }
+        StringBuilder line = new StringBuilder();
+        for (ETaskType type : ETaskType.values()) {
+            CircuitBreaker breaker = breakers.forType(type);
+            if (line.length() > 0) {
+                line.append(" | ");
+            }
+            line.append(type).append(' ').append(breaker.getState());
+            if (breaker.getOpenedCount() > 0) {
+                line.append(" (opened ").append(breaker.getOpenedCount()).append("x)");
+            }
+        }
+        log.info("🔌 Circuit breakers: {} | parked {}", line, MainApp.getParkedTaskCount());
+    }
+
+    /**
+     * One line per priority and producer type that saw completions, interval view then cumulative view
+     */
+    private void logLatencies() {
+        TaskLatencyMetrics metrics = MainApp.getLatencyMetrics();
+        if (metrics == null) {
+            return;
+        }
+        log.info("⏱️ Latency in ms as p50/p90/p99/p999/max (wait = created to dequeue, service = dequeue to done)");
+        for (int priority = 1; priority <= metrics.getPriorityLevels(); priority++) {
+            int level = priority;
+            logLatencyRow("P" + priority, timing -> metrics.getPriorityHistogram(level, timing));
+        }
+        for (ETaskType type : ETaskType.values()) {
+            logLatencyRow(type.name(), timing -> metrics.getTypeHistogram(type, timing));
+        }
+    }
+
+    /**
+     * Cumulative view, only once a task with a deadline has completed or been shed
+     */
+    private void logDeadlines() {
+        TaskLatencyMetrics metrics = MainApp.getLatencyMetrics();
+        if (metrics == null) {
+            return;
+        }
+        LatencyHistogram.Snapshot slack = metrics.getDeadlineSlackHistogram().snapshot();
+        LatencyHistogram.Snapshot lateness = metrics.getDeadlineLatenessHistogram().snapshot();
+        long shed = metrics.getDeadlinesShed();
+        if (slack.getTotalCount() + lateness.getTotalCount() + shed == 0) {
+            return;
+        }
+        log.info("⏰ Deadlines: met {} | missed {} (late {}, shed {}) | slack ms p50/p90/p99/p999/max {} | late by {}",
+                slack.getTotalCount(), lateness.getTotalCount() + shed, lateness.getTotalCount(), shed,
+                formatPercentiles(slack), formatPercentiles(lateness));
+    }
+
+    private void logLatencyRow(String label, Function<TaskLatencyMetrics.Timing, LatencyHistogram> histograms) {
+        LatencyHistogram wait = histograms.apply(TaskLatencyMetrics.Timing.QUEUE_WAIT);
+        LatencyHistogram service = histograms.apply(TaskLatencyMetrics.Timing.SERVICE);
+        LatencyHistogram total = histograms.apply(TaskLatencyMetrics.Timing.END_TO_END);
+
+        // Interval snapshots must be taken every report, even for rows that are not logged
+        LatencyHistogram.Snapshot intervalWait = wait.intervalSnapshot();
+        LatencyHistogram.Snapshot intervalService = service.intervalSnapshot();
+        LatencyHistogram.Snapshot intervalTotal = total.intervalSnapshot();
+        LatencyHistogram.Snapshot cumulativeWait = wait.snapshot();
+
+        if (intervalWait.getTotalCount() > 0) {
+            log.info("⏱️ {} last {}s n={} | wait {} | service {} | total {}", label, monitoringIntervalSeconds,
+                    intervalWait.getTotalCount(), formatPercentiles(intervalWait),
+                    formatPercentiles(intervalService), formatPercentiles(intervalTotal));
+        }
+        if (cumulativeWait.getTotalCount() > 0) {
+            log.info("⏱️ {} overall n={} | wait {} | service {} | total {}", label,
+                    cumulativeWait.getTotalCount(), formatPercentiles(cumulativeWait),
+                    formatPercentiles(service.snapshot()), formatPercentiles(total.snapshot()));
+        }
+    }
+
+    private static String formatPercentiles(LatencyHistogram.Snapshot snapshot) {
+        return String.format("%.1f/%.1f/%.1f/%.1f/%.1f",
+                snapshot.getValueAtPercentile(50) / 1000.0,
+                snapshot.getValueAtPercentile(90) / 1000.0,
+                snapshot.getValueAtPercentile(99) / 1000.0,
+                snapshot.getValueAtPercentile(99.9) / 1000.0,
+                snapshot.getMaxMicros() / 1000.0);
+    }
+
+    /**
+     * One aggregated line in place of the per-task INFO logs, which are now at DEBUG
+     */
+    private void logActivitySinceLastReport(int submittedCount, int processedCount, int retriedCount) {
+        long failedCount = MainApp.getStatusTracker().countTasksWithStatus(ETaskStatus.FAILED);
+
+        log.info("🧾 Last {}s: +{} submitted, +{} completed, +{} retried, +{} failed",
+                monitoringIntervalSeconds,
+                submittedCount - lastSubmittedCount,
+                processedCount - lastProcessedCount,
+                retriedCount - lastRetriedCount,
+                failedCount - lastFailedCount);
+
+        lastSubmittedCount = submittedCount;
+        lastProcessedCount = processedCount;
+        lastRetriedCount = retriedCount;
+        lastFailedCount = failedCount;
+    }
+
     private String getTaskStatusBreakdown() {
         var statusTracker = MainApp.getStatusTracker();
-        var taskStatusMap = statusTracker.getTaskStatusMap();
-
-        if (taskStatusMap == null) {
+        if (statusTracker == null) {
             return "Status tracking unavailable";
         }
 
-        long submitted = taskStatusMap.values().stream()
-                .filter(status -> status.getStatus() == model.ETaskStatus.SUBMITTED).count();
-        long processing = taskStatusMap.values().stream()
-                .filter(status -> status.getStatus() == model.ETaskStatus.PROCESSING).count();
-        long completed = taskStatusMap.values().stream()
-                .filter(status -> status.getStatus() == model.ETaskStatus.COMPLETED).count();
-        long retrying = taskStatusMap.values().stream()
-                .filter(status -> status.getStatus() == model.ETaskStatus.RETRYING).count();
-        long failed = taskStatusMap.values().stream()
-                .filter(status -> status.getStatus() == model.ETaskStatus.FAILED).count();
+        // Constant-time snapshot of the tracker's per-status counters
+        var counts = statusTracker.getStatusCounts();
 
         return String.format("S:%d P:%d C:%d R:%d F:%d",
-                submitted, processing, completed, retrying, failed);
+                counts.get(ETaskStatus.SUBMITTED), counts.get(ETaskStatus.PROCESSING),
+                counts.get(ETaskStatus.COMPLETED), counts.get(ETaskStatus.RETRYING),
+                counts.get(ETaskStatus.FAILED));
     }
 
     private double calculateProcessingRate(int processed, int submitted) {
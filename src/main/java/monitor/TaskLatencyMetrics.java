@@ -0,0 +1,155 @@
+package monitor;
+
+import model.ETaskType;
+import model.Task;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms per priority and per producer type, for three timings of completed tasks:
+ * - QUEUE_WAIT: creation to the dequeue of the attempt that completed (includes earlier attempts and retry delays)
+ * - SERVICE: that dequeue to completion
+ * - END_TO_END: creation to completion
+ *
+ * Tasks that fail permanently are not recorded.
+ *
+ * Completions of tasks with a deadline also record their slack (deadline minus completion) when on time,
+ * or their lateness when not; tasks shed before running because they could no longer make their deadline
+ * are counted separately. Misses are late completions plus shed tasks.
+ */
+public class TaskLatencyMetrics {
+
+    public enum Timing {
+        QUEUE_WAIT, SERVICE, END_TO_END
+    }
+
+    private static final int PRIORITY_LEVELS = 5;
+    private static final Timing[] TIMINGS = Timing.values();
+
+    private final LatencyHistogram[][] byPriority = newHistograms(PRIORITY_LEVELS);
+    private final LatencyHistogram[][] byType = newHistograms(ETaskType.values().length);
+    // Running totals for rate-style consumers such as the autoscaler, which need a mean rather than percentiles
+    private final LongAdder completedCount = new LongAdder();
+    private final LongAdder totalServiceNanos = new LongAdder();
+    private final LongAdder[] completedByType = newCounters(ETaskType.values().length);
+    private final LongAdder[] serviceNanosByType = newCounters(ETaskType.values().length);
+
+    private final LatencyHistogram deadlineSlack = new LatencyHistogram();
+    private final LatencyHistogram deadlineLateness = new LatencyHistogram();
+    private final LongAdder deadlinesShed = new LongAdder();
+
+    private static LatencyHistogram[][] newHistograms(int rows) {
+        LatencyHistogram[][] histograms = new LatencyHistogram[rows][TIMINGS.length];
+        for (int row = 0; row < rows; row++) {
+            for (int timing = 0; timing < TIMINGS.length; timing++) {
+                histograms[row][timing] = new LatencyHistogram();
+            }
+        }
+        return histograms;
+    }
+
+    private static LongAdder[] newCounters(int size) {
+        LongAdder[] counters = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    /**
+     * @param dequeuedNanos System.nanoTime() when the worker took the task off the queue
+     * @param completedNanos System.nanoTime() when the task finished successfully
+     */
+    public void recordCompletion(Task task, long dequeuedNanos, long completedNanos) {
+        long queueWait = dequeuedNanos - task.getCreatedNanos();
+        long service = completedNanos - dequeuedNanos;
+        long endToEnd = completedNanos - task.getCreatedNanos();
+
+        record(byPriority[priorityRow(task.getPriority())], queueWait, service, endToEnd);
+        int type = ETaskType.fromTaskName(task.getName()).ordinal();
+        record(byType[type], queueWait, service, endToEnd);
+        completedCount.increment();
+        totalServiceNanos.add(service);
+        completedByType[type].increment();
+        serviceNanosByType[type].add(service);
+
+        if (task.hasDeadline()) {
+            long slack = task.getDeadlineNanos() - completedNanos;
+            if (slack >= 0) {
+                deadlineSlack.recordNanos(slack);
+            } else {
+                deadlineLateness.recordNanos(-slack);
+            }
+        }
+    }
+
+    /**
+     * A task dropped without running because it could no longer complete by its deadline
+     */
+    public void recordDeadlineShed() {
+        deadlinesShed.increment();
+    }
+
+    private static void record(LatencyHistogram[] row, long queueWait, long service, long endToEnd) {
+        row[Timing.QUEUE_WAIT.ordinal()].recordNanos(queueWait);
+        row[Timing.SERVICE.ordinal()].recordNanos(service);
+        row[Timing.END_TO_END.ordinal()].recordNanos(endToEnd);
+    }
+
+    public long getCompletedCount() {
+        return completedCount.sum();
+    }
+
+    /**
+     * Sum of SERVICE times over all recorded completions; the difference between two reads divided by
+     * the difference in getCompletedCount() is the mean service time over that interval
+     */
+    public long getTotalServiceNanos() {
+        return totalServiceNanos.sum();
+    }
+
+    /**
+     * Mean SERVICE time of the type's completions so far, 0 before the first one
+     */
+    public long getMeanServiceNanos(ETaskType type) {
+        long completed = completedByType[type.ordinal()].sum();
+        return completed == 0 ? 0 : serviceNanosByType[type.ordinal()].sum() / completed;
+    }
+
+    /**
+     * Time left before the deadline, for tasks with a deadline that completed on time
+     */
+    public LatencyHistogram getDeadlineSlackHistogram() {
+        return deadlineSlack;
+    }
+
+    /**
+     * Time past the deadline, for tasks with a deadline that completed late
+     */
+    public LatencyHistogram getDeadlineLatenessHistogram() {
+        return deadlineLateness;
+    }
+
+    public long getDeadlinesShed() {
+        return deadlinesShed.sum();
+    }
+
+    public int getPriorityLevels() {
+        return PRIORITY_LEVELS;
+    }
+
+    /**
+     * @param priority 1..getPriorityLevels(), values outside are clamped like the queue lanes
+     */
+    public LatencyHistogram getPriorityHistogram(int priority, Timing timing) {
+        return byPriority[priorityRow(priority)][timing.ordinal()];
+    }
+
+    public LatencyHistogram getTypeHistogram(ETaskType type, Timing timing) {
+        return byType[type.ordinal()][timing.ordinal()];
+    }
+
+    private static int priorityRow(int priority) {
+        return Math.max(0, Math.min(priority - 1, PRIORITY_LEVELS - 1));
+    }
+}
@@ -0,0 +1,64 @@
+package monitor;
+
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Worker metrics reported by MonitorThread
+ * Implemented by the virtual-thread dispatcher and adapted from a ThreadPoolExecutor
+ */
+public interface WorkerPoolMetrics {
+
+    /**
+     * Number of workers currently processing a task
+     */
+    int getActiveCount();
+
+    /**
+     * Maximum number of tasks that can be processed concurrently
+     */
+    int getPoolSize();
+
+    long getCompletedTaskCount();
+
+    static WorkerPoolMetrics of(ThreadPoolExecutor executor) {
+        return new WorkerPoolMetrics() {
+            @Override
+            public int getActiveCount() {
+                return executor.getActiveCount();
+            }
+
+            @Override
+            public int getPoolSize() {
+                return executor.getPoolSize();
+            }
+
+            @Override
+            public long getCompletedTaskCount() {
+                return executor.getCompletedTaskCount();
+            }
+        };
+    }
+
+    /**
+     * Sums several pools, e.g. the per-type bulkhead pools
+     */
+    static WorkerPoolMetrics combined(List<WorkerPoolMetrics> pools) {
+        return new WorkerPoolMetrics() {
+            @Override
+            public int getActiveCount() {
+                return pools.stream().mapToInt(WorkerPoolMetrics::getActiveCount).sum();
+            }
+
+            @Override
+            public int getPoolSize() {
+                return pools.stream().mapToInt(WorkerPoolMetrics::getPoolSize).sum();
+            }
+
+            @Override
+            public long getCompletedTaskCount() {
+                return pools.stream().mapToLong(WorkerPoolMetrics::getCompletedTaskCount).sum();
+            }
+        };
+    }
+}
@@ -0,0 +1,84 @@
+package persistence;
+
+import model.ETaskType;
+import model.Task;
+import queue.TaskQueue;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TaskQueue decorator that logs every new task to the write-ahead log before enqueueing it
+ * Status transitions reach the log separately, through a TaskStatusTracker listener.
+ */
+public class DurableTaskQueue implements TaskQueue {
+
+    private final TaskQueue delegate;
+    private final WriteAheadLog writeAheadLog;
+
+    public DurableTaskQueue(TaskQueue delegate, WriteAheadLog writeAheadLog) {
+        this.delegate = delegate;
+        this.writeAheadLog = writeAheadLog;
+    }
+
+    @Override
+    public boolean offer(Task task) {
+        writeAheadLog.appendEnqueue(task);
+        return delegate.offer(task);
+    }
+
+    @Override
+    public int offerAll(Collection<Task> tasks) {
+        writeAheadLog.appendEnqueueAll(List.copyOf(tasks));
+        return delegate.offerAll(tasks);
+    }
+
+    @Override
+    public boolean requeue(Task task) {
+        writeAheadLog.appendEnqueue(task);
+        return delegate.requeue(task);
+    }
+
+    @Override
+    public Task poll() {
+        return delegate.poll();
+    }
+
+    @Override
+    public Task poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.poll(timeout, unit);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Task> sink, int maxElements) {
+        return delegate.drainTo(sink, maxElements);
+    }
+
+    @Override
+    public Task pollLeastUrgent() {
+        return delegate.pollLeastUrgent();
+    }
+
+    @Override
+    public Task peekLeastUrgent() {
+        return delegate.peekLeastUrgent();
+    }
+
+    @Override
+    public Comparator<? super Task> comparator() {
+        return delegate.comparator();
+    }
+
+    @Override
+    public TaskQueue partition(ETaskType type) {
+        TaskQueue partition = delegate.partition(type);
+        return partition == delegate ? this : new DurableTaskQueue(partition, writeAheadLog);
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+}
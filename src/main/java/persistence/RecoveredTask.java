@@ -0,0 +1,10 @@
+package persistence;
+
+import model.ETaskStatus;
+import model.Task;
+
+/**
+ * A task rebuilt from the write-ahead log, with the last status and retry count it had logged
+ */
+public record RecoveredTask(Task task, ETaskStatus status, int retryCount) {
+}
@@ -0,0 +1,111 @@
+package persistence;
+
+import model.Task;
+import model.TaskPayload;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary encoding of a Task for the write-ahead log and snapshots
+ * Layout: sequence (long) | created epoch nanos (long) | priority (int) | name | payload | idempotency key | sla nanos (long)
+ * Strings are written as a length-prefixed UTF-8 byte array, length -1 for null.
+ * The payload is written the same way as its TaskPayload binary encoding, copied as is.
+ *
+ * createdNanos is only meaningful inside one JVM, so the wall-clock time is stored and
+ * turned back into a nanoTime stamp on decode, keeping the relative order of recovered tasks.
+ * The deadline is stored relative to creation, so it moves with the rebuilt stamp.
+ */
+public final class TaskCodec {
+
+    private TaskCodec() {
+    }
+
+    public static int maxEncodedSize(Task task) {
+        return 8 + 8 + 4 + maxStringSize(task.getName()) + payloadSize(task.getPayload())
+                + maxStringSize(task.getIdempotencyKey()) + 8;
+    }
+
+    public static void encode(Task task, ByteBuffer buffer) {
+        buffer.putLong(task.getSequence());
+        buffer.putLong(toEpochNanos(task));
+        buffer.putInt(task.getPriority());
+        putString(buffer, task.getName());
+        putPayload(buffer, task.getPayload());
+        putString(buffer, task.getIdempotencyKey());
+        buffer.putLong(task.getSlaNanos());
+    }
+
+    public static Task decode(ByteBuffer buffer) {
+        long sequence = buffer.getLong();
+        long createdEpochNanos = buffer.getLong();
+        int priority = buffer.getInt();
+        String name = getString(buffer);
+        TaskPayload payload = getPayload(buffer);
+        String idempotencyKey = getString(buffer);
+        long slaNanos = buffer.getLong();
+
+        long ageNanos = currentEpochNanos() - createdEpochNanos;
+        return Task.builder()
+                .sequence(sequence)
+                .createdNanos(System.nanoTime() - ageNanos)
+                .name(name)
+                .priority(priority)
+                .payload(payload)
+                .idempotencyKey(idempotencyKey)
+                .slaNanos(slaNanos)
+                .build();
+    }
+
+    private static long toEpochNanos(Task task) {
+        var created = task.getCreatedTimestamp();
+        return created.getEpochSecond() * 1_000_000_000L + created.getNano();
+    }
+
+    private static long currentEpochNanos() {
+        return System.currentTimeMillis() * 1_000_000L;
+    }
+
+    private static int maxStringSize(String value) {
+        // Worst case of 3 UTF-8 bytes per UTF-16 char
+        return 4 + (value == null ? 0 : value.length() * 3);
+    }
+
+    private static int payloadSize(TaskPayload payload) {
+        return 4 + (payload == null ? 0 : payload.encodedSize());
+    }
+
+    private static void putPayload(ByteBuffer buffer, TaskPayload payload) {
+        if (payload == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(payload.encodedSize());
+        payload.writeTo(buffer);
+    }
+
+    private static TaskPayload getPayload(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        return length < 0 ? null : TaskPayload.readFrom(buffer, length);
+    }
+
+    static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,564 @@
+package persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import model.ETaskStatus;
+import model.Task;
+import model.TaskSequence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Segmented, memory-mapped append-only log of enqueues and status transitions
+ *
+ * - Appends copy a pre-encoded record into the current mapped segment under a short lock
+ * - A flusher thread forces the segment every group-commit interval, so one fsync covers
+ *   every record appended in that window; with awaitFlush, appenders wait for that fsync
+ * - A snapshot thread periodically writes the live (non-terminal) tasks to a compacted
+ *   snapshot file and deletes the segments it covers
+ * - open() rebuilds the live tasks from the latest snapshot plus the segments after it
+ *
+ * Record layout: length (int) | type (byte) | body | CRC32 of type and body (int).
+ * A zero length marks the unused tail of a segment; a bad CRC marks a torn write.
+ */
+@Slf4j
+public class WriteAheadLog implements Closeable {
+
+    private static final int SEGMENT_MAGIC = 0x43515741;   // "CQWA"
+    private static final int SNAPSHOT_MAGIC = 0x43515350;  // "CQSP"
+    private static final int FORMAT_VERSION = 4; // 2: TaskPayload encoding, 3: idempotency key, 4: deadline
+    private static final int SEGMENT_HEADER_SIZE = 8;
+    private static final int RECORD_OVERHEAD = 4 + 1 + 4;
+    private static final String SNAPSHOT_FILE = "snapshot.dat";
+
+    private static final byte RECORD_ENQUEUE = 1;
+    private static final byte RECORD_STATUS = 2;
+    private static final int STATUS_BODY_SIZE = 8 + 8 + 1 + 2;
+    private static final ETaskStatus[] STATUSES = ETaskStatus.values();
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long groupCommitNanos;
+    private final long snapshotIntervalNanos;
+    private final boolean awaitFlush;
+
+    // Live tasks by id, mutated only under appendLock so snapshots see a consistent view
+    private final ConcurrentHashMap<UUID, RecoveredTask> liveTasks = new ConcurrentHashMap<>();
+    private final List<RecoveredTask> recoveredTasks;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private long segmentIndex;
+    private FileChannel segmentChannel;
+    private MappedByteBuffer segment;
+    private long appendedLsn;
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Condition flushedCondition = flushLock.newCondition();
+    private volatile long flushedLsn;
+
+    private final ThreadLocal<ByteBuffer> scratch = ThreadLocal.withInitial(() -> ByteBuffer.allocate(1024));
+    private final Thread flusherThread;
+    private final Thread snapshotThread;
+    private volatile boolean closed;
+
+    private WriteAheadLog(Path directory, int segmentSize, Duration groupCommitInterval,
+                          Duration snapshotInterval, boolean awaitFlush) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.groupCommitNanos = groupCommitInterval.toNanos();
+        this.snapshotIntervalNanos = snapshotInterval.toNanos();
+        this.awaitFlush = awaitFlush;
+
+        Files.createDirectories(directory);
+        long nextSegment = recover();
+        this.recoveredTasks = liveTasks.values().stream()
+                .sorted(Comparator.comparingLong(recovered -> recovered.task().getSequence()))
+                .toList();
+        recoveredTasks.forEach(recovered -> TaskSequence.advancePast(recovered.task().getSequence()));
+
+        openSegment(nextSegment);
+        flushedLsn = appendedLsn;
+
+        flusherThread = new Thread(this::flushLoop, "WalFlusher");
+        flusherThread.setDaemon(true);
+        flusherThread.start();
+        snapshotThread = new Thread(this::snapshotLoop, "WalSnapshotter");
+        snapshotThread.setDaemon(true);
+        snapshotThread.start();
+    }
+
+    /**
+     * Opens (or creates) the log in the given directory and recovers the tasks it holds
+     * @param awaitFlush if true, appends return only once their record has been forced to disk
+     */
+    public static WriteAheadLog open(Path directory, int segmentSize, Duration groupCommitInterval,
+                                     Duration snapshotInterval, boolean awaitFlush) throws IOException {
+        if (segmentSize < 4096) {
+            throw new IllegalArgumentException("segmentSize must be at least 4096 bytes");
+        }
+        return new WriteAheadLog(directory, segmentSize, groupCommitInterval, snapshotInterval, awaitFlush);
+    }
+
+    /**
+     * Tasks that were queued or in flight when the log was last closed, oldest sequence first
+     */
+    public List<RecoveredTask> getRecoveredTasks() {
+        return recoveredTasks;
+    }
+
+    public int getLiveTaskCount() {
+        return liveTasks.size();
+    }
+
+    /**
+     * Logs an enqueue record unless the task is already live (e.g. a retry being re-queued)
+     * @return true if a record was appended
+     */
+    public boolean appendEnqueue(Task task) {
+        UUID taskId = task.getId();
+        if (liveTasks.containsKey(taskId)) {
+            return false;
+        }
+        ByteBuffer body = scratchFor(TaskCodec.maxEncodedSize(task));
+        TaskCodec.encode(task, body);
+        body.flip();
+
+        long lsn;
+        appendLock.lock();
+        try {
+            if (liveTasks.putIfAbsent(taskId, new RecoveredTask(task, ETaskStatus.SUBMITTED, 0)) != null) {
+                return false;
+            }
+            writeRecord(RECORD_ENQUEUE, body);
+            lsn = appendedLsn;
+        } finally {
+            appendLock.unlock();
+        }
+        awaitDurable(lsn);
+        return true;
+    }
+
+    /**
+     * Logs an enqueue record per task; tasks that are already live (e.g. retries) are skipped
+     * @return the number of records appended
+     */
+    public int appendEnqueueAll(List<Task> tasks) {
+        List<ByteBuffer> records = new ArrayList<>(tasks.size());
+        List<Task> fresh = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            if (!liveTasks.containsKey(task.getId())) {
+                records.add(encodeEnqueue(task));
+                fresh.add(task);
+            }
+        }
+        if (fresh.isEmpty()) {
+            return 0;
+        }
+
+        long lsn;
+        appendLock.lock();
+        try {
+            for (int i = 0; i < fresh.size(); i++) {
+                Task task = fresh.get(i);
+                if (liveTasks.putIfAbsent(task.getId(), new RecoveredTask(task, ETaskStatus.SUBMITTED, 0)) == null) {
+                    writeRecord(RECORD_ENQUEUE, records.get(i));
+                }
+            }
+            lsn = appendedLsn;
+        } finally {
+            appendLock.unlock();
+        }
+        awaitDurable(lsn);
+        return fresh.size();
+    }
+
+    /**
+     * Logs a status transition for a live task; SUBMITTED is implied by the enqueue record
+     */
+    public void appendStatus(UUID taskId, ETaskStatus status, int retryCount) {
+        if (status == ETaskStatus.SUBMITTED || !liveTasks.containsKey(taskId)) {
+            return;
+        }
+        ByteBuffer body = scratchFor(STATUS_BODY_SIZE);
+        body.putLong(taskId.getMostSignificantBits());
+        body.putLong(taskId.getLeastSignificantBits());
+        body.put((byte) status.ordinal());
+        body.putShort((short) Math.min(retryCount, Short.MAX_VALUE));
+        body.flip();
+
+        long lsn;
+        appendLock.lock();
+        try {
+            RecoveredTask live = liveTasks.get(taskId);
+            if (live == null) {
+                return;
+            }
+            writeRecord(RECORD_STATUS, body);
+            applyStatus(taskId, live, status, retryCount);
+            lsn = appendedLsn;
+        } finally {
+            appendLock.unlock();
+        }
+        awaitDurable(lsn);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flusherThread.interrupt();
+        snapshotThread.interrupt();
+
+        appendLock.lock();
+        try {
+            segment.force();
+            flushedLsn = appendedLsn;
+            segmentChannel.close();
+        } finally {
+            appendLock.unlock();
+        }
+        signalFlushed();
+        log.info("WriteAheadLog closed with {} live tasks", liveTasks.size());
+    }
+
+    // ---- append path ----
+
+    private ByteBuffer scratchFor(int size) {
+        ByteBuffer buffer = scratch.get();
+        if (buffer.capacity() < size) {
+            buffer = ByteBuffer.allocate(Math.max(size, buffer.capacity() * 2));
+            scratch.set(buffer);
+        }
+        return buffer.clear();
+    }
+
+    private ByteBuffer encodeEnqueue(Task task) {
+        ByteBuffer body = ByteBuffer.allocate(TaskCodec.maxEncodedSize(task));
+        TaskCodec.encode(task, body);
+        return body.flip();
+    }
+
+    // Caller holds appendLock
+    private void writeRecord(byte type, ByteBuffer body) {
+        if (closed) {
+            throw new IllegalStateException("WriteAheadLog is closed");
+        }
+        int length = body.remaining();
+        int recordSize = RECORD_OVERHEAD + length;
+        if (recordSize > segmentSize - SEGMENT_HEADER_SIZE) {
+            throw new IllegalArgumentException("Record of " + recordSize + " bytes does not fit in a segment");
+        }
+        if (segment.remaining() < recordSize + 4) {
+            rollSegment();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(body.duplicate());
+
+        segment.putInt(length);
+        segment.put(type);
+        segment.put(body);
+        segment.putInt((int) crc.getValue());
+        appendedLsn = lsn(segmentIndex, segment.position());
+    }
+
+    // Caller holds appendLock
+    private void rollSegment() {
+        try {
+            segment.force();
+            segmentChannel.close();
+            flushedLsn = Math.max(flushedLsn, appendedLsn);
+            openSegment(segmentIndex + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to roll WAL segment", e);
+        }
+        signalFlushed();
+    }
+
+    private void openSegment(long index) throws IOException {
+        Path path = segmentPath(index);
+        segmentChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        segment = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segment.putInt(SEGMENT_MAGIC);
+        segment.putInt(FORMAT_VERSION);
+        segmentIndex = index;
+        appendedLsn = lsn(index, segment.position());
+    }
+
+    private long lsn(long index, int position) {
+        return index * segmentSize + position;
+    }
+
+    private void applyStatus(UUID taskId, RecoveredTask live, ETaskStatus status, int retryCount) {
+        if (status == ETaskStatus.COMPLETED || status == ETaskStatus.FAILED) {
+            liveTasks.remove(taskId);
+        } else {
+            liveTasks.put(taskId, new RecoveredTask(live.task(), status, retryCount));
+        }
+    }
+
+    // ---- group commit ----
+
+    private void awaitDurable(long lsn) {
+        if (!awaitFlush || flushedLsn >= lsn) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            while (flushedLsn < lsn && !closed) {
+                flushedCondition.awaitUninterruptibly();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        while (!closed && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(groupCommitNanos);
+            MappedByteBuffer target;
+            long targetLsn;
+            appendLock.lock();
+            try {
+                if (closed || appendedLsn == flushedLsn) {
+                    continue;
+                }
+                target = segment;
+                targetLsn = appendedLsn;
+            } finally {
+                appendLock.unlock();
+            }
+
+            // One force covers every record appended since the last one
+            target.force();
+            if (targetLsn > flushedLsn) {
+                flushedLsn = targetLsn;
+            }
+            signalFlushed();
+        }
+    }
+
+    private void signalFlushed() {
+        flushLock.lock();
+        try {
+            flushedCondition.signalAll();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // ---- snapshots ----
+
+    private void snapshotLoop() {
+        while (!closed && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(snapshotIntervalNanos);
+            if (closed || Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            try {
+                writeSnapshot();
+            } catch (IOException | RuntimeException e) {
+                log.warn("WAL snapshot failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes the live tasks to a compacted snapshot and deletes the segments it replaces
+     */
+    public void writeSnapshot() throws IOException {
+        List<RecoveredTask> live;
+        long coveredUpTo;
+        appendLock.lock();
+        try {
+            // Start a fresh segment so the snapshot covers exactly the segments before it
+            rollSegment();
+            coveredUpTo = segmentIndex;
+            live = new ArrayList<>(liveTasks.values());
+        } finally {
+            appendLock.unlock();
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(coveredUpTo);
+        out.writeInt(live.size());
+        for (RecoveredTask entry : live) {
+            ByteBuffer body = encodeEnqueue(entry.task());
+            out.writeInt(body.remaining());
+            out.write(body.array(), body.arrayOffset() + body.position(), body.remaining());
+            out.writeByte(entry.status().ordinal());
+            out.writeShort(entry.retryCount());
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+
+        // Write and sync a temp file, then rename it over the old snapshot
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer data = ByteBuffer.wrap(bytes.toByteArray());
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(SNAPSHOT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        int deleted = 0;
+        for (long index : listSegments()) {
+            if (index < coveredUpTo && Files.deleteIfExists(segmentPath(index))) {
+                deleted++;
+            }
+        }
+        log.info("WAL snapshot written: {} live tasks, {} segments compacted", live.size(), deleted);
+    }
+
+    // ---- recovery ----
+
+    /**
+     * Loads the snapshot and replays later segments into liveTasks
+     * @return the index for the next segment to write
+     */
+    private long recover() throws IOException {
+        long firstSegment = readSnapshot();
+        List<Long> segments = listSegments();
+        long nextSegment = firstSegment;
+        int replayed = 0;
+        for (long index : segments) {
+            if (index < firstSegment) {
+                continue;
+            }
+            replayed += replaySegment(index);
+            nextSegment = Math.max(nextSegment, index + 1);
+        }
+        if (!liveTasks.isEmpty() || replayed > 0) {
+            log.info("WAL recovery: replayed {} records, {} live tasks", replayed, liveTasks.size());
+        }
+        return nextSegment;
+    }
+
+    private long readSnapshot() throws IOException {
+        Path path = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (data.remaining() < 24) {
+            throw new IOException("WAL snapshot is truncated");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data.array(), 0, data.limit() - 4);
+        if ((int) crc.getValue() != data.getInt(data.limit() - 4)) {
+            throw new IOException("WAL snapshot checksum mismatch");
+        }
+        data.limit(data.limit() - 4);
+
+        if (data.getInt() != SNAPSHOT_MAGIC || data.getInt() != FORMAT_VERSION) {
+            throw new IOException("Unsupported WAL snapshot format");
+        }
+        long coveredUpTo = data.getLong();
+        int count = data.getInt();
+        for (int i = 0; i < count; i++) {
+            int length = data.getInt();
+            ByteBuffer body = data.slice(data.position(), length);
+            data.position(data.position() + length);
+            Task task = TaskCodec.decode(body);
+            ETaskStatus status = STATUSES[data.get()];
+            int retryCount = data.getShort();
+            liveTasks.put(task.getId(), new RecoveredTask(task, status, retryCount));
+        }
+        return coveredUpTo;
+    }
+
+    private int replaySegment(long index) throws IOException {
+        int records = 0;
+        try (FileChannel channel = FileChannel.open(segmentPath(index), StandardOpenOption.READ)) {
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (data.remaining() < SEGMENT_HEADER_SIZE || data.getInt() != SEGMENT_MAGIC
+                    || data.getInt() != FORMAT_VERSION) {
+                log.warn("Skipping WAL segment {} with an unknown header", index);
+                return 0;
+            }
+            while (data.remaining() >= RECORD_OVERHEAD) {
+                int length = data.getInt();
+                if (length <= 0 || length > data.remaining() - 5) {
+                    break;
+                }
+                byte type = data.get();
+                ByteBuffer body = data.slice(data.position(), length);
+                data.position(data.position() + length);
+                int storedCrc = data.getInt();
+
+                CRC32 crc = new CRC32();
+                crc.update(type);
+                crc.update(body.duplicate());
+                if ((int) crc.getValue() != storedCrc) {
+                    log.warn("Torn record in WAL segment {}, ignoring the rest of it", index);
+                    break;
+                }
+                applyRecord(type, body);
+                records++;
+            }
+        }
+        return records;
+    }
+
+    private void applyRecord(byte type, ByteBuffer body) {
+        if (type == RECORD_ENQUEUE) {
+            Task task = TaskCodec.decode(body);
+            liveTasks.putIfAbsent(task.getId(), new RecoveredTask(task, ETaskStatus.SUBMITTED, 0));
+        } else if (type == RECORD_STATUS && body.remaining() >= STATUS_BODY_SIZE) {
+            UUID taskId = new UUID(body.getLong(), body.getLong());
+            ETaskStatus status = STATUSES[body.get()];
+            int retryCount = body.getShort();
+            RecoveredTask live = liveTasks.get(taskId);
+            if (live != null) {
+                applyStatus(taskId, live, status, retryCount);
+            }
+        }
+    }
+
+    private List<Long> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith("wal-") && name.endsWith(".log"))
+                    .map(name -> Long.parseLong(name.substring(4, name.length() - 4)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("wal-%020d.log", index));
+    }
+}
@@ -2,9 +2,12 @@ package producer;
 
 import prototype.MainApp;
 import lombok.extern.slf4j.Slf4j;
-import model.ETaskStatus;
 import model.Task;
+import model.TaskPayload;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 /**
@@ -12,30 +15,62 @@ import java.util.Random;
  */
 @Slf4j
 public class EmailTaskProducer implements Runnable {
+    private static final Duration SLA = Duration.ofSeconds(30); // completion deadline, counted from creation
     private final Random random = new Random();
     private final String[] emailTypes = {"welcome", "reminder", "notification", "marketing", "alert"};
+    private final int batchSize;
+    private final SubmissionBackoff backoff = new SubmissionBackoff();
+    private final List<Task> pending = new ArrayList<>();
     private int taskCounter = 0;
 
+    public EmailTaskProducer() {
+        this(1);
+    }
+
+    /**
+     * @param batchSize number of tasks created and submitted together on each tick
+     */
+    public EmailTaskProducer(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.batchSize = batchSize;
+    }
+
     @Override
     public void run() {
         log.info("EmailTaskProducer started");
 
         try {
             while (!Thread.currentThread().isInterrupted()) {
-                // Create medium-priority email tasks (priority 3-4)
-                String emailType = emailTypes[random.nextInt(emailTypes.length)];
-                String taskName = "Email-" + emailType + "-" + (++taskCounter);
-                int priority = random.nextInt(2) + 3; // Priority 3 or 4
-                String payload = String.format("user_id=%d,template=%s,email=user%d@example.com",
-                        5000 + taskCounter, emailType, taskCounter);
+                String threadName = Thread.currentThread().getName();
+                if (batchSize == 1) {
+                    Task task = pending.isEmpty() ? createTask() : pending.remove(0);
+                    if (!MainApp.getTaskSubmitter().submit(task, threadName)) {
+                        pending.add(task);
+                    } else if (log.isDebugEnabled()) {
+                        log.debug("Created email task: {} (Priority: {})", task.getName(), task.getPriority());
+                    }
+                } else {
+                    // Bulk path: one queue insert, one grouped status update, one counter bump
+                    List<Task> batch = new ArrayList<>(pending);
+                    pending.clear();
+                    while (batch.size() < batchSize) {
+                        batch.add(createTask());
+                    }
+                    int accepted = MainApp.getTaskSubmitter().submitAll(batch, threadName);
+                    pending.addAll(batch.subList(accepted, batch.size()));
+                    log.debug("Created batch of {} email tasks", accepted);
+                }
 
-                Task task = new Task(taskName, priority, payload);
-                MainApp.getTaskQueue().offer(task);
-                MainApp.getStatusTracker().updateTaskStatus(
-                        task.getId(), ETaskStatus.SUBMITTED, Thread.currentThread().getName());
-                MainApp.getTotalTasksSubmitted().incrementAndGet();
-
-                log.info("Created email task: {} (Priority: {})", taskName, priority);
+                if (!pending.isEmpty()) {
+                    // Queue is full: keep the refused tasks and try them again after backing off
+                    long delay = backoff.onRefused();
+                    log.debug("Queue refused {} email tasks, retrying in {} ms", pending.size(), delay);
+                    Thread.sleep(delay);
+                    continue;
+                }
+                backoff.onAccepted();
 
                 // Submit email tasks every 1.5-3 seconds (medium frequency)
                 Thread.sleep(1500 + random.nextInt(1500));
@@ -44,6 +79,20 @@ public class EmailTaskProducer implements Runnable {
             log.info("EmailTaskProducer interrupted, stopping...");
         }
 
-        log.info("EmailTaskProducer finished. Created {} tasks", taskCounter);
+        log.info("EmailTaskProducer finished. Created {} tasks, refused {} times", taskCounter, backoff.getRefusals());
+    }
+
+    private Task createTask() {
+        // Create medium-priority email tasks (priority 3-4)
+        String emailType = emailTypes[random.nextInt(emailTypes.length)];
+        String taskName = "Email-" + emailType + "-" + (++taskCounter);
+        int priority = random.nextInt(2) + 3; // Priority 3 or 4
+        TaskPayload payload = TaskPayload.builder()
+                .putLong("user_id", 5000 + taskCounter)
+                .putString("template", emailType)
+                .putString("email", "user" + taskCounter + "@example.com")
+                .build();
+
+        return new Task(taskName, priority, payload, "email-" + emailType + "-" + payload.getLong("user_id"), SLA);
     }
 }
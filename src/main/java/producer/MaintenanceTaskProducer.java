@@ -2,9 +2,11 @@ package producer;
 
 import prototype.MainApp;
 import lombok.extern.slf4j.Slf4j;
-import model.ETaskStatus;
 import model.Task;
+import model.TaskPayload;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 /**
@@ -14,27 +16,60 @@ import java.util.Random;
 public class MaintenanceTaskProducer implements Runnable{
     private final Random random = new Random();
     private final String[] maintenanceTypes = {"backup", "cleanup", "report", "archive", "optimize"};
+    private final int batchSize;
+    private final SubmissionBackoff backoff = new SubmissionBackoff();
+    private final List<Task> pending = new ArrayList<>();
     private int taskCounter = 0;
 
+    public MaintenanceTaskProducer() {
+        this(1);
+    }
+
+    /**
+     * @param batchSize number of tasks created and submitted together on each tick
+     */
+    public MaintenanceTaskProducer(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.batchSize = batchSize;
+    }
+
     @Override
     public void run() {
         log.info("MaintenanceTaskProducer started");
 
         try {
             while (!Thread.currentThread().isInterrupted()) {
-                // Create low-priority maintenance tasks (priority 4-5)
-                String maintenanceType = maintenanceTypes[random.nextInt(maintenanceTypes.length)];
-                String taskName = "Maintenance-" + maintenanceType + "-" + (++taskCounter);
-                int priority = random.nextInt(2) + 4; // Priority 4 or 5
-                String payload = String.format("type=%s,target=system,scheduled=true", maintenanceType);
+                String threadName = Thread.currentThread().getName();
+                if (batchSize == 1) {
+                    Task task = pending.isEmpty() ? createTask() : pending.remove(0);
+                    if (!MainApp.getTaskSubmitter().submit(task, threadName)) {
+                        pending.add(task);
+                    } else if (log.isDebugEnabled()) {
+                        log.debug("Created maintenance task: {} (Priority: {})", task.getName(), task.getPriority());
+                    }
+                } else {
+                    // Bulk path: one queue insert, one grouped status update, one counter bump
+                    List<Task> batch = new ArrayList<>(pending);
+                    pending.clear();
+                    while (batch.size() < batchSize) {
+                        batch.add(createTask());
+                    }
+                    int accepted = MainApp.getTaskSubmitter().submitAll(batch, threadName);
+                    pending.addAll(batch.subList(accepted, batch.size()));
+                    log.debug("Created batch of {} maintenance tasks", accepted);
+                }
 
-                Task task = new Task(taskName, priority, payload);
-                MainApp.getTaskQueue().offer(task);
-                MainApp.getStatusTracker().updateTaskStatus(
-                        task.getId(), ETaskStatus.SUBMITTED, Thread.currentThread().getName());
-                MainApp.getTotalTasksSubmitted().incrementAndGet();
-
-                log.info("Created maintenance task: {} (Priority: {})", taskName, priority);
+                if (!pending.isEmpty()) {
+                    // Queue is full: maintenance work is periodic, so drop it and back off
+                    long delay = backoff.onRefused();
+                    log.debug("Queue refused {} maintenance tasks, dropping them and pausing {} ms", pending.size(), delay);
+                    pending.clear();
+                    Thread.sleep(delay);
+                    continue;
+                }
+                backoff.onAccepted();
 
                 // Submit maintenance tasks every 2-4 seconds (low frequency)
                 Thread.sleep(2000 + random.nextInt(2000));
@@ -43,6 +78,21 @@ public class MaintenanceTaskProducer implements Runnable{
             log.info("MaintenanceTaskProducer interrupted, stopping...");
         }
 
-        log.info("MaintenanceTaskProducer finished. Created {} tasks", taskCounter);
+        log.info("MaintenanceTaskProducer finished. Created {} tasks, refused {} times", taskCounter, backoff.getRefusals());
+    }
+
+    private Task createTask() {
+        // Create low-priority maintenance tasks (priority 4-5)
+        String maintenanceType = maintenanceTypes[random.nextInt(maintenanceTypes.length)];
+        String taskName = "Maintenance-" + maintenanceType + "-" + (++taskCounter);
+        int priority = random.nextInt(2) + 4; // Priority 4 or 5
+        TaskPayload payload = TaskPayload.builder()
+                .putString("type", maintenanceType)
+                .putString("target", "system")
+                .putBoolean("scheduled", true)
+                .build();
+
+        // A second run of the same job while one is still pending would do the same work again
+        return new Task(taskName, priority, payload, "maintenance-" + maintenanceType);
     }
 }
@@ -2,8 +2,11 @@ package producer;
 
 import prototype.MainApp;
 import lombok.extern.slf4j.Slf4j;
-import model.ETaskStatus;
 import model.Task;
+import model.TaskPayload;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 /**
@@ -12,28 +15,62 @@ import java.util.Random;
 @Slf4j
 public class PaymentTaskProducer implements Runnable {
 
+    private static final Duration SLA = Duration.ofSeconds(3); // completion deadline, counted from creation
+
     private final Random random = new Random();
+    private final int batchSize;
+    private final SubmissionBackoff backoff = new SubmissionBackoff();
+    private final List<Task> pending = new ArrayList<>();
     private int taskCounter = 0;
 
+    public PaymentTaskProducer() {
+        this(1);
+    }
+
+    /**
+     * @param batchSize number of tasks created and submitted together on each tick
+     */
+    public PaymentTaskProducer(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.batchSize = batchSize;
+    }
+
     @Override
     public void run() {
         log.info("PaymentTaskProducer started");
 
         try {
             while (!Thread.currentThread().isInterrupted()) {
-                // Create high-priority payment tasks (priority 1-2)
-                String taskName = "Payment-" + (++taskCounter);
-                int priority = random.nextInt(2) + 1; // Priority 1 or 2
-                String payload = String.format("payment_id=%d,amount=%.2f,type=credit_card",
-                        1000 + taskCounter, 100.0 + random.nextDouble() * 900);
-
-                Task task = new Task(taskName, priority, payload);
-                MainApp.getTaskQueue().offer(task);
-                MainApp.getStatusTracker().updateTaskStatus(
-                        task.getId(), ETaskStatus.SUBMITTED, Thread.currentThread().getName());
-                MainApp.getTotalTasksSubmitted().incrementAndGet();
+                String threadName = Thread.currentThread().getName();
+                if (batchSize == 1) {
+                    Task task = pending.isEmpty() ? createTask() : pending.remove(0);
+                    if (!MainApp.getTaskSubmitter().submit(task, threadName)) {
+                        pending.add(task);
+                    } else if (log.isDebugEnabled()) {
+                        log.debug("Created payment task: {} (Priority: {})", task.getName(), task.getPriority());
+                    }
+                } else {
+                    // Bulk path: one queue insert, one grouped status update, one counter bump
+                    List<Task> batch = new ArrayList<>(pending);
+                    pending.clear();
+                    while (batch.size() < batchSize) {
+                        batch.add(createTask());
+                    }
+                    int accepted = MainApp.getTaskSubmitter().submitAll(batch, threadName);
+                    pending.addAll(batch.subList(accepted, batch.size()));
+                    log.debug("Created batch of {} payment tasks", accepted);
+                }
 
-                log.info("Created payment task: {} (Priority: {})", taskName, priority);
+                if (!pending.isEmpty()) {
+                    // Queue is full: keep the refused tasks and try them again after backing off
+                    long delay = backoff.onRefused();
+                    log.debug("Queue refused {} payment tasks, retrying in {} ms", pending.size(), delay);
+                    Thread.sleep(delay);
+                    continue;
+                }
+                backoff.onAccepted();
 
                 // Submit payment tasks every 1-2 seconds (high frequency)
                 Thread.sleep(1000 + random.nextInt(1000));
@@ -42,6 +79,20 @@ public class PaymentTaskProducer implements Runnable {
             log.info("PaymentTaskProducer interrupted, stopping...");
         }
 
-        log.info("PaymentTaskProducer finished. Created {} tasks", taskCounter);
+        log.info("PaymentTaskProducer finished. Created {} tasks, refused {} times", taskCounter, backoff.getRefusals());
+    }
+
+    private Task createTask() {
+        // Create high-priority payment tasks (priority 1-2)
+        String taskName = "Payment-" + (++taskCounter);
+        int priority = random.nextInt(2) + 1; // Priority 1 or 2
+        TaskPayload payload = TaskPayload.builder()
+                .putLong("payment_id", 1000 + taskCounter)
+                .putDecimal("amount", Math.round((100.0 + random.nextDouble() * 900) * 100) / 100.0, 2)
+                .putString("type", "credit_card")
+                .build();
+
+        // A resent payment carries the same key, so it can be merged with the copy still in the system
+        return new Task(taskName, priority, payload, "payment-" + payload.getLong("payment_id"), SLA);
     }
 }
@@ -0,0 +1,34 @@
+package producer;
+
+/**
+ * Producer-side reaction to a refused submission (the queue's backpressure signal)
+ * Each consecutive refusal doubles the pause before the next attempt, up to a cap;
+ * an accepted submission resets it.
+ */
+final class SubmissionBackoff {
+
+    private static final long INITIAL_DELAY_MILLIS = 200;
+    private static final long MAX_DELAY_MILLIS = 5000;
+
+    private long currentDelayMillis;
+    private long refusals;
+
+    /**
+     * @return how long to pause before submitting again
+     */
+    long onRefused() {
+        refusals++;
+        currentDelayMillis = currentDelayMillis == 0
+                ? INITIAL_DELAY_MILLIS
+                : Math.min(MAX_DELAY_MILLIS, currentDelayMillis * 2);
+        return currentDelayMillis;
+    }
+
+    void onAccepted() {
+        currentDelayMillis = 0;
+    }
+
+    long getRefusals() {
+        return refusals;
+    }
+}
@@ -1,18 +1,62 @@
 package prototype;
 
+import cluster.ClusteredTaskQueue;
+import cluster.TaskOwnershipListener;
 import consumer.ConsumerWorker;
+import consumer.VirtualThreadDispatcher;
+import consumer.WorkStealingScheduler;
+import consumer.WorkerAutoscaler;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import model.ETaskStatus;
+import model.ETaskType;
 import model.Task;
+import model.TaskSequence;
+import persistence.DurableTaskQueue;
+import persistence.RecoveredTask;
+import persistence.WriteAheadLog;
 import producer.EmailTaskProducer;
 import producer.MaintenanceTaskProducer;
 import producer.PaymentTaskProducer;
+import queue.AdmissionPolicy;
+import queue.AgingTaskComparator;
+import queue.DeadlineTaskComparator;
+import queue.BoundedTaskQueue;
+import queue.IdempotentTaskQueue;
+import queue.OffHeapTaskQueue;
+import queue.PriorityTaskQueue;
+import queue.StripedTaskQueue;
+import queue.TaskQueue;
+import queue.TaskSlabStore;
+import queue.TypePartitionedTaskQueue;
+import service.CircuitBreaker;
+import service.CircuitBreakerRegistry;
+import service.CircuitBreakingTaskQueue;
+import service.RetryScheduler;
+import service.ShutdownDrainer;
+import service.SimulatedTaskHandler;
+import service.TaskHandler;
+import service.TaskHandlerRegistry;
 import service.TaskStatusTracker;
+import service.TaskSubmitter;
 import monitor.MonitorThread;
+import monitor.TaskLatencyMetrics;
+import monitor.WorkerPoolMetrics;
 import java.util.concurrent.ThreadPoolExecutor;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /**
  * Enhanced Task Status Tracking with Retry Logic
@@ -25,13 +69,86 @@ public class MainApp {
     private static final int WORKER_POOL_SIZE = 4;
     private static final int PRODUCER_RUN_TIME_SECONDS = 8;
     private static final int MAX_RETRY_ATTEMPTS = 3;
+    private static final boolean USE_QUIESCENT_DRAIN = false; // waits for the work to finish instead of a fixed 5 s
+    private static final Duration DRAIN_DEADLINE = Duration.ofSeconds(30); // leftovers are then persisted, not dropped
+    private static final boolean USE_STRIPED_QUEUE = true;
+    private static final boolean USE_OFF_HEAP_STORAGE = false; // queued tasks and live statuses in direct memory
+    private static final int OFF_HEAP_SLAB_SIZE = 1 << 20;
+    private static final int TERMINAL_STATUS_CAPACITY = 10_000;
+    private static final Duration TERMINAL_STATUS_TTL = Duration.ofMinutes(10);
+    private static final boolean USE_VIRTUAL_THREADS = false;
+    private static final int MAX_IN_FLIGHT_TASKS = 64;
+    private static final int WORKER_BATCH_SIZE = 1; // > 1 enables batched consumption
+    private static final Duration MAX_BATCH_WAIT = Duration.ofMillis(50);
+    private static final int PRODUCER_BATCH_SIZE = 1; // > 1 submits tasks in bulk
+    private static final Duration RETRY_BASE_DELAY = Duration.ofMillis(250);
+    private static final Duration RETRY_MAX_DELAY = Duration.ofSeconds(4);
+    private static final boolean USE_BULKHEADS = false; // one worker pool per task type instead of WORKER_POOL_SIZE shared workers
+    private static final Map<ETaskType, Integer> BULKHEAD_WORKERS = new EnumMap<>(Map.of(
+            ETaskType.PAYMENT, 2, ETaskType.EMAIL, 1, ETaskType.MAINTENANCE, 1, ETaskType.OTHER, 1));
+    private static final boolean USE_AUTOSCALING = false; // sizes the shared pool between MIN_WORKERS and MAX_WORKERS
+    private static final int MIN_WORKERS = 2;
+    private static final int MAX_WORKERS = 16;
+    private static final Duration AUTOSCALE_INTERVAL = Duration.ofSeconds(1);
+    private static final Duration SCALE_UP_COOLDOWN = Duration.ofSeconds(2);
+    private static final Duration SCALE_DOWN_COOLDOWN = Duration.ofSeconds(10);
+    private static final Duration TARGET_DRAIN_TIME = Duration.ofSeconds(5); // backlog the pool should clear within this
+    private static final boolean USE_WORK_STEALING = false; // per-worker local run queues, refilled in batches, with stealing
+    private static final int LOCAL_REFILL_BATCH = 8; // tasks a worker claims per refill; also bounds priority inversion
+    private static final boolean USE_AGING_SCHEDULER = false; // lets waiting low-priority tasks overtake newer urgent ones
+    private static final Duration AGING_INTERVAL = Duration.ofSeconds(2); // one priority level per interval waited
+    private static final boolean USE_DEADLINE_SCHEDULER = false; // earliest deadline first, sheds tasks that can no longer make it
+    private static final DeadlineTaskComparator.Mode DEADLINE_MODE = DeadlineTaskComparator.Mode.WITHIN_PRIORITY;
+    private static final Duration IMPLICIT_DEADLINE_BUDGET = Duration.ofSeconds(5); // per priority level, tasks without a deadline
+    private static final boolean USE_CIRCUIT_BREAKERS = false; // parks a task type whose attempts keep failing
+    private static final int BREAKER_WINDOW = 20; // attempts the failure rate is computed over
+    private static final int BREAKER_MINIMUM_CALLS = 10;
+    private static final double BREAKER_FAILURE_RATE = 0.5;
+    private static final Duration BREAKER_OPEN_DURATION = Duration.ofSeconds(5);
+    private static final int BREAKER_HALF_OPEN_PROBES = 3;
+    private static final boolean USE_BOUNDED_QUEUE = false; // caps queued tasks at QUEUE_CAPACITY
+    private static final int QUEUE_CAPACITY = 1_000;
+    private static final AdmissionPolicy ADMISSION_POLICY = AdmissionPolicy.BLOCK;
+    private static final Duration ADMISSION_TIMEOUT = Duration.ofMillis(500);
+    private static final int[] RESERVED_CAPACITY = {100, 100}; // kept free for priorities 1 and 2 (payments)
+    private static final boolean USE_CLUSTER = false; // owns a hash partition of the tasks, forwards the rest to peers
+    private static final List<InetSocketAddress> CLUSTER_MEMBERS = List.of(
+            new InetSocketAddress("127.0.0.1", 7101),
+            new InetSocketAddress("127.0.0.1", 7102),
+            new InetSocketAddress("127.0.0.1", 7103));
+    private static final int CLUSTER_NODE_ID = Integer.getInteger("concurqueue.node", 0); // index into CLUSTER_MEMBERS
+    private static final boolean USE_IDEMPOTENCY = false; // merges resends with the same idempotency key while one is live
+    private static final boolean USE_DURABLE_QUEUE = false; // logs enqueues and transitions to WAL_DIRECTORY
+    private static final Path WAL_DIRECTORY = Path.of("data", "wal");
+    private static final int WAL_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final Duration WAL_GROUP_COMMIT_INTERVAL = Duration.ofMillis(5);
+    private static final Duration WAL_SNAPSHOT_INTERVAL = Duration.ofSeconds(30);
 
     // Shared resources
     @Getter
-    private static PriorityBlockingQueue<Task> taskQueue;
+    private static TaskQueue taskQueue;
     @Getter
     private static TaskStatusTracker statusTracker;
     @Getter
+    private static RetryScheduler retryScheduler;
+    @Getter
+    private static TaskSubmitter taskSubmitter;
+    @Getter
+    private static TaskLatencyMetrics latencyMetrics;
+    @Getter
+    private static TaskHandlerRegistry handlerRegistry;
+    @Getter
+    private static CircuitBreakerRegistry circuitBreakers;
+    private static CircuitBreakingTaskQueue circuitBreakingQueue;
+    @Getter
+    private static TaskSlabStore taskSlabStore;
+    @Getter
+    private static WorkStealingScheduler workStealingScheduler;
+    private static WriteAheadLog writeAheadLog;
+    private static BoundedTaskQueue boundedQueue;
+    private static IdempotentTaskQueue idempotentQueue;
+    private static ClusteredTaskQueue clusteredQueue;
+    @Getter
     private final static AtomicInteger totalTasksSubmitted = new AtomicInteger(0);
     @Getter
     private final static AtomicInteger totalTasksProcessed = new AtomicInteger(0);
@@ -40,19 +157,311 @@ public class MainApp {
 
     public static int getMaxRetryAttempts() { return MAX_RETRY_ATTEMPTS; }
 
+    public static boolean isDeadlineSheddingEnabled() { return USE_DEADLINE_SCHEDULER; }
+
+    public static int getParkedTaskCount() { return circuitBreakingQueue == null ? 0 : circuitBreakingQueue.getParkedCount(); }
+
+    /**
+     * Creates the shared queue, tracker, retry scheduler, submitter and latency metrics used by producers and workers
+     * Called by main, and by benchmarks that drive ConsumerWorker without the demo phases
+     */
+    public static void initializeSharedResources() {
+        handlerRegistry = registerTaskHandlers();
+        if (USE_DEADLINE_SCHEDULER && USE_AGING_SCHEDULER) {
+            throw new IllegalStateException("The deadline and aging schedulers are exclusive");
+        }
+        if (USE_WORK_STEALING && (USE_BULKHEADS || USE_VIRTUAL_THREADS || USE_CIRCUIT_BREAKERS)) {
+            // Local run queues hold tasks of every type, and local retries would bypass a breaker's parking
+            throw new IllegalStateException("Work stealing does not combine with bulkheads, virtual threads or circuit breakers");
+        }
+        if (USE_OFF_HEAP_STORAGE && (USE_AGING_SCHEDULER || USE_DEADLINE_SCHEDULER)) {
+            // The off-heap queue orders handles by lane, it cannot consult a comparator without decoding
+            throw new IllegalStateException("Off-heap storage only supports strict priority ordering");
+        }
+        if (USE_OFF_HEAP_STORAGE && USE_DURABLE_QUEUE) {
+            // The log keeps every live task on the heap for its snapshots, which would defeat off-heap queueing
+            throw new IllegalStateException("Off-heap storage does not combine with the durable queue");
+        }
+        AgingTaskComparator aging = USE_AGING_SCHEDULER ? new AgingTaskComparator(AGING_INTERVAL) : null;
+        Supplier<TaskQueue> queueFactory;
+        if (USE_DEADLINE_SCHEDULER) {
+            // Striped lanes are FIFO, so deadline order needs the heap
+            DeadlineTaskComparator edf = new DeadlineTaskComparator(DEADLINE_MODE, IMPLICIT_DEADLINE_BUDGET);
+            queueFactory = () -> new PriorityTaskQueue(edf);
+        } else if (USE_OFF_HEAP_STORAGE) {
+            // One store shared by all partitions
+            taskSlabStore = new TaskSlabStore(OFF_HEAP_SLAB_SIZE);
+            queueFactory = () -> new OffHeapTaskQueue(taskSlabStore);
+        } else {
+            queueFactory = USE_STRIPED_QUEUE
+                    ? () -> new StripedTaskQueue(aging)
+                    : () -> new PriorityTaskQueue(aging);
+        }
+        TaskQueue baseQueue = USE_BULKHEADS ? new TypePartitionedTaskQueue(queueFactory) : queueFactory.get();
+        if (USE_CIRCUIT_BREAKERS) {
+            // Innermost, so parked tasks keep their bounded-queue slot
+            circuitBreakers = new CircuitBreakerRegistry(BREAKER_WINDOW, BREAKER_MINIMUM_CALLS, BREAKER_FAILURE_RATE,
+                    BREAKER_OPEN_DURATION, BREAKER_HALF_OPEN_PROBES);
+            circuitBreakingQueue = new CircuitBreakingTaskQueue(baseQueue, circuitBreakers);
+            baseQueue = circuitBreakingQueue;
+        }
+        statusTracker = new TaskStatusTracker(TERMINAL_STATUS_CAPACITY, TERMINAL_STATUS_TTL, USE_OFF_HEAP_STORAGE);
+        if (USE_CLUSTER && USE_DURABLE_QUEUE) {
+            // Tasks handed to another node would stay live in this node's log and come back on recovery
+            throw new IllegalStateException("The durable queue does not support cluster mode");
+        }
+        taskQueue = baseQueue;
+        List<Task> recoveredTasks = USE_DURABLE_QUEUE ? openWriteAheadLog(baseQueue) : List.of();
+        if (USE_BOUNDED_QUEUE) {
+            // Outside the log, so refused tasks never reach the write-ahead log
+            boundedQueue = new BoundedTaskQueue(taskQueue, QUEUE_CAPACITY, ADMISSION_POLICY,
+                    ADMISSION_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS, RESERVED_CAPACITY, MainApp::onTaskShed);
+            taskQueue = boundedQueue;
+        }
+        if (USE_CLUSTER) {
+            startClusterNode();
+        }
+        if (USE_IDEMPOTENCY) {
+            // Outermost, so merged duplicates never take a slot in the bounded queue
+            idempotentQueue = new IdempotentTaskQueue(taskQueue, MainApp::onTaskCoalesced);
+            recoveredTasks.forEach(idempotentQueue::register);
+            statusTracker.addStatusListener((taskId, status, retryCount) -> {
+                if (status == ETaskStatus.COMPLETED || status == ETaskStatus.FAILED) {
+                    idempotentQueue.expire(taskId);
+                }
+            });
+            taskQueue = idempotentQueue;
+        }
+        retryScheduler = new RetryScheduler(taskQueue, RETRY_BASE_DELAY, RETRY_MAX_DELAY);
+        retryScheduler.start();
+        if (USE_WORK_STEALING) {
+            workStealingScheduler = new WorkStealingScheduler(taskQueue, LOCAL_REFILL_BATCH);
+        }
+        taskSubmitter = new TaskSubmitter(taskQueue, statusTracker, totalTasksSubmitted);
+        latencyMetrics = new TaskLatencyMetrics();
+    }
+
+    /**
+     * Worker of the shared (fixed or autoscaled) pool; batching is replaced by local refills when work stealing is on
+     */
+    private static ConsumerWorker newSharedPoolWorker(String name) {
+        return workStealingScheduler != null
+                ? new ConsumerWorker(name, workStealingScheduler)
+                : new ConsumerWorker(name, WORKER_BATCH_SIZE, MAX_BATCH_WAIT);
+    }
+
+    private static ThreadPoolExecutor startBulkhead(ETaskType type, int workers) {
+        String prefix = type.name().charAt(0) + type.name().substring(1).toLowerCase() + "Worker-";
+        ThreadPoolExecutor threadPool = (ThreadPoolExecutor) Executors.newFixedThreadPool(workers,
+                Thread.ofPlatform().name(prefix + "thread-", 1).factory());
+        for (int i = 0; i < workers; i++) {
+            threadPool.submit(new ConsumerWorker(prefix + (i + 1), type, WORKER_BATCH_SIZE, MAX_BATCH_WAIT));
+        }
+        log.info("Bulkhead for {} tasks: {} workers", type, workers);
+        return threadPool;
+    }
+
+    /**
+     * @param idle true when the system is quiescent, so workers are only waiting on the queue and can be interrupted right away
+     */
+    private static void shutdownWorkerPools(List<ExecutorService> workerPools, boolean idle) {
+        workerPools.forEach(idle ? ExecutorService::shutdownNow : ExecutorService::shutdown);
+
+        // One shared grace period, not one per pool
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        try {
+            for (ExecutorService workerPool : workerPools) {
+                if (!workerPool.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    log.warn("Worker pool didn't terminate gracefully, forcing shutdown...");
+                    workerPool.shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            workerPools.forEach(ExecutorService::shutdownNow);
+        }
+    }
+
+    private static void onTaskShed(Task task) {
+        statusTracker.updateTaskStatusWithError(task.getId(), ETaskStatus.FAILED,
+                Thread.currentThread().getName(), "Shed by admission control: queue full");
+    }
+
+    /**
+     * Joins the cluster as node CLUSTER_NODE_ID; the node's status tracker only knows the tasks it currently holds
+     */
+    private static void startClusterNode() {
+        // Disjoint id ranges per node, ids travel with the tasks
+        TaskSequence.advancePast((long) CLUSTER_NODE_ID << 48);
+        TaskOwnershipListener ownership = new TaskOwnershipListener() {
+            @Override
+            public int onTaskLeft(Task task) {
+                var status = statusTracker.getTaskStatus(task.getId());
+                statusTracker.discardTask(task.getId());
+                if (idempotentQueue != null) {
+                    idempotentQueue.expire(task.getId());
+                }
+                return status != null ? status.getRetryCount() : 0;
+            }
+
+            @Override
+            public boolean onTaskArrived(Task task, int retryCount, boolean admitted) {
+                // Keyed tasks are routed by key, so resends arrive here and merge into the live task;
+                // forwarded work only holds its key for good once the local admission control accepted it
+                if (idempotentQueue != null && !(admitted
+                        ? idempotentQueue.registerOrCoalesce(task)
+                        : idempotentQueue.claimOrCoalesce(task))) {
+                    return false;
+                }
+                statusTracker.restoreTaskStatus(task.getId(), ETaskStatus.SUBMITTED, retryCount, "Cluster");
+                return true;
+            }
+
+            @Override
+            public void onTaskAdmitted(Task task) {
+                if (idempotentQueue != null) {
+                    idempotentQueue.settle(task, true);
+                }
+            }
+
+            @Override
+            public void onTaskRefused(Task task) {
+                if (idempotentQueue != null) {
+                    idempotentQueue.settle(task, false);
+                }
+                statusTracker.updateTaskStatusWithError(task.getId(), ETaskStatus.FAILED,
+                        Thread.currentThread().getName(), "Refused by admission control at node " + CLUSTER_NODE_ID);
+            }
+        };
+        try {
+            clusteredQueue = new ClusteredTaskQueue(taskQueue, CLUSTER_NODE_ID, CLUSTER_MEMBERS, ownership);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to start cluster node " + CLUSTER_NODE_ID, e);
+        }
+        clusteredQueue.start();
+        taskQueue = clusteredQueue;
+    }
+
+    /**
+     * Persistence hook for work still unfinished at the drain deadline
+     * With the durable queue the tasks are still live in the write-ahead log, which recovers them on the next start.
+     * Otherwise they are written to a log in WAL_DIRECTORY, picked up by the next start in durable mode.
+     */
+    private static void persistLeftoverTasks(List<Task> leftovers) {
+        if (leftovers.isEmpty()) {
+            return;
+        }
+        if (writeAheadLog != null) {
+            log.info("{} unfinished tasks stay in the write-ahead log for the next start", leftovers.size());
+            return;
+        }
+        try (WriteAheadLog leftoverLog = WriteAheadLog.open(WAL_DIRECTORY, WAL_SEGMENT_SIZE,
+                WAL_GROUP_COMMIT_INTERVAL, WAL_SNAPSHOT_INTERVAL, false)) {
+            leftoverLog.appendEnqueueAll(leftovers);
+            for (Task task : leftovers) {
+                var status = statusTracker.getTaskStatus(task.getId());
+                if (status != null && status.getRetryCount() > 0) {
+                    leftoverLog.appendStatus(task.getId(), ETaskStatus.RETRYING, status.getRetryCount());
+                }
+            }
+            log.info("Persisted {} unfinished tasks to {}", leftovers.size(), WAL_DIRECTORY);
+        } catch (IOException e) {
+            log.error("Failed to persist {} unfinished tasks: {}", leftovers.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * The duplicate was registered as SUBMITTED by the submitter but never queued, so its record is dropped
+     */
+    private static void onTaskCoalesced(Task duplicate, UUID existing) {
+        statusTracker.discardTask(duplicate.getId());
+        log.debug("Coalesced {} into live task {} (key {})",
+                duplicate.getName(), existing, duplicate.getIdempotencyKey());
+    }
+
+    /**
+     * One handler per task type; workers look them up on every attempt
+     */
+    private static TaskHandlerRegistry registerTaskHandlers() {
+        TaskHandler standard = SimulatedTaskHandler.standard(1.0, SimulatedTaskHandler.DEFAULT_FAILURE_PERCENT);
+        return new TaskHandlerRegistry(standard)
+                .register(ETaskType.PAYMENT, standard)
+                .register(ETaskType.EMAIL, standard)
+                .register(ETaskType.MAINTENANCE, standard);
+    }
+
+    /**
+     * Opens the write-ahead log, re-queues the tasks it recovered and wraps the queue
+     * Recovered tasks go straight to the base queue, they are already in the log
+     * @return the recovered tasks
+     */
+    private static List<Task> openWriteAheadLog(TaskQueue baseQueue) {
+        try {
+            writeAheadLog = WriteAheadLog.open(WAL_DIRECTORY, WAL_SEGMENT_SIZE,
+                    WAL_GROUP_COMMIT_INTERVAL, WAL_SNAPSHOT_INTERVAL, false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open write-ahead log in " + WAL_DIRECTORY, e);
+        }
+
+        List<RecoveredTask> recovered = writeAheadLog.getRecoveredTasks();
+        List<Task> recoveredTasks = new ArrayList<>(recovered.size());
+        for (RecoveredTask entry : recovered) {
+            statusTracker.restoreTaskStatus(entry.task().getId(), ETaskStatus.SUBMITTED,
+                    entry.retryCount(), "Recovery");
+            baseQueue.offer(entry.task());
+            recoveredTasks.add(entry.task());
+        }
+        if (!recovered.isEmpty()) {
+            log.info("Recovered {} tasks from write-ahead log", recovered.size());
+        }
+
+        statusTracker.addStatusListener(writeAheadLog::appendStatus);
+        taskQueue = new DurableTaskQueue(baseQueue, writeAheadLog);
+        return recoveredTasks;
+    }
+
     public static void main(String[] args) throws InterruptedException {
         log.info("Starting Enhanced Task Status Tracking with Retry Logic Demo");
         log.info("Worker pool size: {}, Max retry attempts: {}", WORKER_POOL_SIZE, MAX_RETRY_ATTEMPTS);
+        log.info("Task queue: {}{}", USE_OFF_HEAP_STORAGE ? "off-heap priority lanes"
+                        : USE_STRIPED_QUEUE && !USE_DEADLINE_SCHEDULER ? "striped multi-lane" : "single-lock priority heap",
+                USE_DURABLE_QUEUE ? " with write-ahead log" : "");
+        if (USE_BULKHEADS) {
+            log.info("Per-type bulkheads: {}", BULKHEAD_WORKERS);
+        }
+        if (USE_AUTOSCALING) {
+            log.info("Autoscaling workers between {} and {}", MIN_WORKERS, MAX_WORKERS);
+        }
+        if (USE_WORK_STEALING) {
+            log.info("Work stealing: local run queues refilled {} tasks at a time", LOCAL_REFILL_BATCH);
+        }
+        if (USE_AGING_SCHEDULER) {
+            log.info("Aging scheduler: one priority level gained per {} ms of waiting", AGING_INTERVAL.toMillis());
+        }
+        if (USE_DEADLINE_SCHEDULER) {
+            log.info("Deadline scheduler: earliest deadline first {}, unreachable deadlines shed", DEADLINE_MODE);
+        }
+        if (USE_CIRCUIT_BREAKERS) {
+            log.info("Circuit breakers per task type: open at {}% failures over {} attempts, for {} ms",
+                    Math.round(BREAKER_FAILURE_RATE * 100), BREAKER_WINDOW, BREAKER_OPEN_DURATION.toMillis());
+        }
+        if (USE_BOUNDED_QUEUE) {
+            log.info("Queue capacity: {}, admission policy: {}", QUEUE_CAPACITY, ADMISSION_POLICY);
+        }
+        if (USE_CLUSTER) {
+            log.info("Cluster node {} of {}", CLUSTER_NODE_ID, CLUSTER_MEMBERS.size());
+        }
+        if (USE_IDEMPOTENCY) {
+            log.info("Idempotency index: resends of a live task are coalesced");
+        }
 
         // Initialize shared components
-        taskQueue = new PriorityBlockingQueue<>();
-        statusTracker = new TaskStatusTracker();
+        initializeSharedResources();
 
         // Phase 1: Start producer threads
         log.info("=== PHASE 1: Starting Producer Threads ===");
-        Thread paymentProducer = new Thread(new PaymentTaskProducer(), "PaymentProducer");
-        Thread emailProducer = new Thread(new EmailTaskProducer(), "EmailProducer");
-        Thread maintenanceProducer = new Thread(new MaintenanceTaskProducer(), "MaintenanceProducer");
+        Thread paymentProducer = new Thread(new PaymentTaskProducer(PRODUCER_BATCH_SIZE), "PaymentProducer");
+        Thread emailProducer = new Thread(new EmailTaskProducer(PRODUCER_BATCH_SIZE), "EmailProducer");
+        Thread maintenanceProducer = new Thread(new MaintenanceTaskProducer(PRODUCER_BATCH_SIZE), "MaintenanceProducer");
 
         paymentProducer.start();
         emailProducer.start();
@@ -60,16 +469,53 @@ public class MainApp {
 
         // Phase 2: Start worker pool
         log.info("=== PHASE 2: Starting Worker Pool ===");
-        ThreadPoolExecutor workerPool = (ThreadPoolExecutor) Executors.newFixedThreadPool(WORKER_POOL_SIZE);
+        List<ExecutorService> workerPools = new ArrayList<>();
+        WorkerPoolMetrics workerMetrics;
+
+        if (USE_VIRTUAL_THREADS) {
+            // One dispatcher thread hands each task to its own virtual thread
+            log.info("Virtual-thread mode, max in-flight tasks: {}", MAX_IN_FLIGHT_TASKS);
+            VirtualThreadDispatcher dispatcher = new VirtualThreadDispatcher(MAX_IN_FLIGHT_TASKS);
+            ExecutorService dispatcherPool = Executors.newSingleThreadExecutor();
+            dispatcherPool.submit(dispatcher);
+            workerPools.add(dispatcherPool);
+            workerMetrics = dispatcher;
+        } else if (USE_BULKHEADS) {
+            // One fixed pool per task type, each consuming only its own partition of the queue
+            List<WorkerPoolMetrics> bulkheadMetrics = new ArrayList<>();
+            for (Map.Entry<ETaskType, Integer> bulkhead : BULKHEAD_WORKERS.entrySet()) {
+                ThreadPoolExecutor threadPool = startBulkhead(bulkhead.getKey(), bulkhead.getValue());
+                workerPools.add(threadPool);
+                bulkheadMetrics.add(WorkerPoolMetrics.of(threadPool));
+            }
+            workerMetrics = WorkerPoolMetrics.combined(bulkheadMetrics);
+        } else if (USE_AUTOSCALING) {
+            // Starts at WORKER_POOL_SIZE, then follows queue depth, arrival rate and service time
+            WorkerAutoscaler autoscaler = new WorkerAutoscaler(MIN_WORKERS, MAX_WORKERS, AUTOSCALE_INTERVAL,
+                    SCALE_UP_COOLDOWN, SCALE_DOWN_COOLDOWN, TARGET_DRAIN_TIME,
+                    id -> newSharedPoolWorker("Worker-" + id));
+            autoscaler.start(WORKER_POOL_SIZE);
+            ExecutorService controllerPool = Executors.newSingleThreadExecutor(
+                    Thread.ofPlatform().name("Autoscaler").factory());
+            controllerPool.submit(autoscaler);
+            // Controller first, so it stops before the workers it manages
+            workerPools.add(controllerPool);
+            workerPools.add(autoscaler.getExecutor());
+            workerMetrics = autoscaler;
+        } else {
+            ThreadPoolExecutor threadPool = (ThreadPoolExecutor) Executors.newFixedThreadPool(WORKER_POOL_SIZE);
 
-        // Submit worker tasks to the pool
-        for (int i = 0; i < WORKER_POOL_SIZE; i++) {
-            workerPool.submit(new ConsumerWorker("Worker-" + (i + 1)));
+            // Submit worker tasks to the pool
+            for (int i = 0; i < WORKER_POOL_SIZE; i++) {
+                threadPool.submit(newSharedPoolWorker("Worker-" + (i + 1)));
+            }
+            workerPools.add(threadPool);
+            workerMetrics = WorkerPoolMetrics.of(threadPool);
         }
 
         // Phase 3: Start monitoring thread (NEW FOR STEP 7)
         log.info("=== PHASE 3: Starting Monitoring Thread ===");
-        Thread monitoringThread = new Thread(new MonitorThread(workerPool), "MonitoringThread");
+        Thread monitoringThread = new Thread(new MonitorThread(workerMetrics), "MonitoringThread");
         monitoringThread.start();
 
         // Let the system run
@@ -89,7 +535,13 @@ public class MainApp {
 
         // Phase 5: Let workers finish remaining tasks
         log.info("=== PHASE 5: Processing Remaining Tasks ===");
-        Thread.sleep(5000); // Give workers time to finish and retry failed tasks
+        boolean quiescent = false;
+        if (USE_QUIESCENT_DRAIN) {
+            // Returns as soon as nothing is queued, in flight or waiting for a retry
+            quiescent = new ShutdownDrainer(taskQueue, retryScheduler, statusTracker).awaitQuiescence(DRAIN_DEADLINE);
+        } else {
+            Thread.sleep(5000); // Give workers time to finish and retry failed tasks
+        }
 
         // Phase 6: Shutdown worker pool
         log.info("==== PHASE 6: Shutting Down Worker Pool ====");
@@ -103,15 +555,33 @@ public class MainApp {
             log.warn("Interrupted while waiting for monitoring thread to stop");
         }
 
-        workerPool.shutdown();
+        shutdownWorkerPools(workerPools, quiescent);
+        if (circuitBreakingQueue != null) {
+            // Parked tasks count as remaining work, like everything else still queued
+            circuitBreakingQueue.releaseAll();
+        }
+
+        List<Task> pendingRetries = retryScheduler.shutdown();
+        if (USE_QUIESCENT_DRAIN && !quiescent) {
+            List<Task> leftovers = new ArrayList<>(pendingRetries);
+            taskQueue.drainTo(leftovers, Integer.MAX_VALUE);
+            persistLeftoverTasks(leftovers);
+        }
 
-        try {
-            if (!workerPool.awaitTermination(5, TimeUnit.SECONDS)) {
-                log.warn("Worker pool didn't terminate gracefully, forcing shutdown...");
-                workerPool.shutdownNow();
+        if (clusteredQueue != null) {
+            try {
+                clusteredQueue.close();
+            } catch (IOException e) {
+                log.warn("Failed to close cluster transport: {}", e.getMessage());
+            }
+        }
+
+        if (writeAheadLog != null) {
+            try {
+                writeAheadLog.close();
+            } catch (IOException e) {
+                log.warn("Failed to close write-ahead log: {}", e.getMessage());
             }
-        } catch (InterruptedException e) {
-            workerPool.shutdownNow();
         }
 
         // Final results
@@ -120,6 +590,41 @@ public class MainApp {
         log.info("Tasks processed: {}", totalTasksProcessed.get());
         log.info("Tasks retried: {}", totalTasksRetried.get());
         log.info("Remaining in queue: {}", taskQueue.size());
+        log.info("Pending retries: {}", pendingRetries.size());
+        if (boundedQueue != null) {
+            log.info("Refused by admission control: {}, shed: {}",
+                    boundedQueue.getRejectedCount(), boundedQueue.getShedCount());
+        }
+        if (clusteredQueue != null) {
+            log.info("Cluster node {}: forwarded {} (refused by owner {}), kept for busy or unreachable owners {}, "
+                            + "received {} (refused {}), given to idle peers {}, steal requests {}, dropped {}",
+                    clusteredQueue.getSelfId(), clusteredQueue.getForwardedCount(), clusteredQueue.getRefusedByPeersCount(),
+                    clusteredQueue.getKeptCount(), clusteredQueue.getReceivedCount(), clusteredQueue.getRefusedCount(),
+                    clusteredQueue.getGivenAwayCount(), clusteredQueue.getStealRequestCount(),
+                    clusteredQueue.getDroppedCount());
+        }
+        if (workStealingScheduler != null) {
+            log.info("Work stealing: {} refills, {} tasks stolen, {} retries kept local",
+                    workStealingScheduler.getRefillCount(), workStealingScheduler.getStolenCount(),
+                    workStealingScheduler.getLocalRetryCount());
+        }
+        if (USE_DEADLINE_SCHEDULER) {
+            long late = latencyMetrics.getDeadlineLatenessHistogram().snapshot().getTotalCount();
+            log.info("Deadlines met: {}, completed late: {}, shed: {}",
+                    latencyMetrics.getDeadlineSlackHistogram().snapshot().getTotalCount(), late,
+                    latencyMetrics.getDeadlinesShed());
+        }
+        if (circuitBreakers != null) {
+            for (ETaskType type : ETaskType.values()) {
+                CircuitBreaker breaker = circuitBreakers.forType(type);
+                if (breaker.getOpenedCount() > 0) {
+                    log.info("Circuit breaker {}: opened {} times, ended {}", type, breaker.getOpenedCount(), breaker.getState());
+                }
+            }
+        }
+        if (idempotentQueue != null) {
+            log.info("Duplicates coalesced: {}", idempotentQueue.getCoalescedCount());
+        }
 
         statusTracker.printStatusSummary();
         statusTracker.printFailedTasks();
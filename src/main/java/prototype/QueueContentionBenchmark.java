@@ -0,0 +1,124 @@
+package prototype;
+
+import lombok.extern.slf4j.Slf4j;
+import model.Task;
+import queue.PriorityTaskQueue;
+import queue.StripedTaskQueue;
+import queue.TaskQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Contention benchmark: single PriorityBlockingQueue vs striped multi-lane queue
+ * Runs N producers against N consumers for N = 4, 16 and 64 and reports throughput
+ */
+@Slf4j
+public class QueueContentionBenchmark {
+
+    private static final int[] THREAD_COUNTS = {4, 16, 64};
+    private static final int TOTAL_TASKS = 400_000;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int MEASURED_ROUNDS = 3;
+
+    public static void main(String[] args) throws InterruptedException {
+        log.info("Starting Queue Contention Benchmark ({} tasks per round)", TOTAL_TASKS);
+
+        for (int threads : THREAD_COUNTS) {
+            double single = measure("PriorityTaskQueue", PriorityTaskQueue::new, threads);
+            double striped = measure("StripedTaskQueue", StripedTaskQueue::new, threads);
+
+            log.info("{} producers / {} consumers -> single: {} ops/s, striped: {} ops/s ({}x)",
+                    threads, threads,
+                    String.format("%,.0f", single),
+                    String.format("%,.0f", striped),
+                    String.format("%.2f", striped / single));
+        }
+
+        log.info("Queue Contention Benchmark completed!");
+    }
+
+    private static double measure(String label, Supplier<TaskQueue> queueFactory, int threads)
+            throws InterruptedException {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            runRound(queueFactory.get(), threads);
+        }
+
+        double best = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            best = Math.max(best, runRound(queueFactory.get(), threads));
+        }
+        log.debug("{} with {} threads: {} ops/s", label, threads, best);
+        return best;
+    }
+
+    /**
+     * Runs one round and returns the throughput in tasks per second (offer + poll pairs)
+     */
+    private static double runRound(TaskQueue queue, int threads) throws InterruptedException {
+        int tasksPerProducer = TOTAL_TASKS / threads;
+        int totalTasks = tasksPerProducer * threads;
+
+        // Pre-create tasks so UUID generation is not part of the measurement
+        List<Task[]> batches = new ArrayList<>(threads);
+        for (int p = 0; p < threads; p++) {
+            Task[] batch = new Task[tasksPerProducer];
+            for (int i = 0; i < tasksPerProducer; i++) {
+                batch[i] = new Task("Bench-" + p + "-" + i, 1 + (i % 5), "bench");
+            }
+            batches.add(batch);
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads * 2);
+        AtomicInteger remaining = new AtomicInteger(totalTasks);
+
+        for (int p = 0; p < threads; p++) {
+            Task[] batch = batches.get(p);
+            startThread("BenchProducer-" + p, start, done, () -> {
+                for (Task task : batch) {
+                    queue.offer(task);
+                }
+            });
+        }
+        for (int c = 0; c < threads; c++) {
+            startThread("BenchConsumer-" + c, start, done, () -> {
+                while (remaining.get() > 0) {
+                    try {
+                        if (queue.poll(10, TimeUnit.MILLISECONDS) != null) {
+                            remaining.decrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            });
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        return totalTasks / (elapsedNanos / 1_000_000_000.0);
+    }
+
+    private static void startThread(String name, CountDownLatch start, CountDownLatch done, Runnable body) {
+        Thread thread = new Thread(() -> {
+            try {
+                start.await();
+                body.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                done.countDown();
+            }
+        }, name);
+        thread.start();
+    }
+}
@@ -0,0 +1,13 @@
+package queue;
+
+/**
+ * What a BoundedTaskQueue does with a new task when no capacity is left for its priority
+ */
+public enum AdmissionPolicy {
+    /** Wait for space up to the admission timeout, then reject */
+    BLOCK,
+    /** Refuse immediately; offer returns false */
+    REJECT,
+    /** Evict the least urgent queued task if it is less urgent than the new one, otherwise reject */
+    SHED_LOWEST
+}
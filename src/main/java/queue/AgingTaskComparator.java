@@ -0,0 +1,42 @@
+package queue;
+
+import model.Task;
+
+import java.time.Duration;
+import java.util.Comparator;
+
+/**
+ * Anti-starvation ordering: a task's effective priority improves by one level per aging interval it waits
+ * Implemented as a fixed score, so the heap never has to be re-sorted as tasks age:
+ *   score = createdNanos + (priority - 1) * agingInterval, lowest score first
+ * A priority-5 task created at t therefore ranks like a priority-1 task created at t + 4 * agingInterval.
+ * Worst-case wait for priority p is bounded by (p - 1) * agingInterval plus the time to drain the work
+ * queued ahead of it, however much more urgent work keeps arriving.
+ *
+ * Task's natural ordering (strict priority, then FIFO) is unchanged; queues opt in to this comparator.
+ */
+public class AgingTaskComparator implements Comparator<Task> {
+
+    private final long agingIntervalNanos;
+
+    public AgingTaskComparator(Duration agingInterval) {
+        if (agingInterval.isNegative() || agingInterval.isZero()) {
+            throw new IllegalArgumentException("agingInterval must be positive");
+        }
+        this.agingIntervalNanos = agingInterval.toNanos();
+    }
+
+    public long agedScore(Task task) {
+        return task.getCreatedNanos() + (task.getPriority() - 1L) * agingIntervalNanos;
+    }
+
+    @Override
+    public int compare(Task a, Task b) {
+        // Scores are nanoTime based, so compare by difference
+        int scoreComparison = Long.compare(agedScore(a) - agedScore(b), 0L);
+        if (scoreComparison != 0) {
+            return scoreComparison;
+        }
+        return a.compareTo(b);
+    }
+}
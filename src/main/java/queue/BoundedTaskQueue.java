@@ -0,0 +1,370 @@
+package queue;
+
+import model.ETaskType;
+import model.Task;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * TaskQueue decorator that caps the number of queued tasks
+ * - New work is admitted with a CAS on the occupancy counter, no lock on the fast path
+ * - Per-priority reserved capacity: slots reserved for priority p are never handed to less
+ *   urgent work, so limit(p) = capacity - sum of reserves of priorities more urgent than p
+ * - When no slot is left for a task, the AdmissionPolicy decides between waiting,
+ *   rejecting, or shedding the least urgent queued task
+ *
+ * Requeued tasks (retries, work a worker gave back) bypass the limit, they were admitted once already.
+ */
+public class BoundedTaskQueue implements TaskQueue {
+
+    private final TaskQueue delegate;
+    private final int capacity;
+    private final int[] priorityLimits;
+    private final AdmissionPolicy policy;
+    private final long admissionTimeoutNanos;
+    private final Consumer<Task> shedHandler;
+
+    private final AtomicInteger occupied;
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder shedCount = new LongAdder();
+
+    // Only producers blocked by a full queue take this lock, consumers signal it when someone waits
+    private final ReentrantLock spaceLock = new ReentrantLock();
+    private final Condition notFull = spaceLock.newCondition();
+    private final AtomicInteger waitingProducers = new AtomicInteger(0);
+
+    /**
+     * @param reservedCapacity slots reserved per priority, index 0 for priority 1; may be shorter than the priority range
+     * @param shedHandler called with each task evicted under SHED_LOWEST, on the thread that evicted it
+     */
+    public BoundedTaskQueue(TaskQueue delegate, int capacity, AdmissionPolicy policy, long admissionTimeout,
+                            TimeUnit unit, int[] reservedCapacity, Consumer<Task> shedHandler) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.delegate = delegate;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.admissionTimeoutNanos = unit.toNanos(admissionTimeout);
+        this.shedHandler = shedHandler;
+        this.priorityLimits = computeLimits(capacity, reservedCapacity);
+        this.occupied = new AtomicInteger(delegate.size());
+    }
+
+    private static int[] computeLimits(int capacity, int[] reservedCapacity) {
+        int[] limits = new int[reservedCapacity.length + 1];
+        int reservedAbove = 0;
+        for (int i = 0; i < limits.length; i++) {
+            limits[i] = capacity - reservedAbove;
+            if (limits[i] < 1) {
+                throw new IllegalArgumentException("Reserved capacity leaves no room for priority " + (i + 1));
+            }
+            if (i < reservedCapacity.length) {
+                reservedAbove += reservedCapacity[i];
+            }
+        }
+        return limits;
+    }
+
+    @Override
+    public boolean offer(Task task) {
+        if (admit(task)) {
+            return true;
+        }
+        rejectedCount.increment();
+        return false;
+    }
+
+    @Override
+    public int offerAll(Collection<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return 0;
+        }
+        // Claim slots for as long a prefix as fits without waiting, insert it in one call
+        List<Task> admitted = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            if (!tryAcquire(task.getPriority())) {
+                break;
+            }
+            admitted.add(task);
+        }
+        int accepted = admitted.isEmpty() ? 0 : delegate.offerAll(admitted);
+        if (accepted < admitted.size()) {
+            release(admitted.size() - accepted);
+        }
+
+        // The rest goes through the admission policy one by one, stopping at the first refusal
+        if (accepted == admitted.size()) {
+            for (Task task : tasks.stream().skip(accepted).toList()) {
+                if (!admit(task)) {
+                    break;
+                }
+                accepted++;
+            }
+        }
+        if (accepted < tasks.size()) {
+            rejectedCount.add(tasks.size() - accepted);
+        }
+        return accepted;
+    }
+
+    @Override
+    public boolean requeue(Task task) {
+        occupied.incrementAndGet();
+        return delegate.requeue(task);
+    }
+
+    @Override
+    public Task poll() {
+        Task task = delegate.poll();
+        if (task != null) {
+            release(1);
+        }
+        return task;
+    }
+
+    @Override
+    public Task poll(long timeout, TimeUnit unit) throws InterruptedException {
+        Task task = delegate.poll(timeout, unit);
+        if (task != null) {
+            release(1);
+        }
+        return task;
+    }
+
+    @Override
+    public int drainTo(Collection<? super Task> sink, int maxElements) {
+        int drained = delegate.drainTo(sink, maxElements);
+        if (drained > 0) {
+            release(drained);
+        }
+        return drained;
+    }
+
+    @Override
+    public Task pollLeastUrgent() {
+        Task task = delegate.pollLeastUrgent();
+        if (task != null) {
+            release(1);
+        }
+        return task;
+    }
+
+    @Override
+    public Task peekLeastUrgent() {
+        return delegate.peekLeastUrgent();
+    }
+
+    @Override
+    public Comparator<? super Task> comparator() {
+        return delegate.comparator();
+    }
+
+    @Override
+    public TaskQueue partition(ETaskType type) {
+        TaskQueue partition = delegate.partition(type);
+        return partition == delegate ? this : new PartitionView(partition);
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public AdmissionPolicy getPolicy() {
+        return policy;
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    public long getShedCount() {
+        return shedCount.sum();
+    }
+
+    private boolean admit(Task task) {
+        if (tryAcquire(task.getPriority())) {
+            return insert(task);
+        }
+        return switch (policy) {
+            case REJECT -> false;
+            case BLOCK -> awaitSpace(task.getPriority()) && insert(task);
+            case SHED_LOWEST -> shedFor(task);
+        };
+    }
+
+    private boolean insert(Task task) {
+        if (delegate.offer(task)) {
+            return true;
+        }
+        release(1);
+        return false;
+    }
+
+    private boolean tryAcquire(int priority) {
+        int limit = limitFor(priority);
+        while (true) {
+            int current = occupied.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (occupied.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void release(int slots) {
+        occupied.addAndGet(-slots);
+        if (waitingProducers.get() > 0) {
+            spaceLock.lock();
+            try {
+                // Waiters have different limits, so wake them all and let each re-check its own
+                notFull.signalAll();
+            } finally {
+                spaceLock.unlock();
+            }
+        }
+    }
+
+    private boolean awaitSpace(int priority) {
+        long nanos = admissionTimeoutNanos;
+        spaceLock.lock();
+        waitingProducers.incrementAndGet();
+        try {
+            // Re-check after registering as a waiter so a concurrent release cannot be missed
+            while (!tryAcquire(priority)) {
+                if (nanos <= 0L) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            waitingProducers.decrementAndGet();
+            spaceLock.unlock();
+        }
+    }
+
+    /**
+     * Swaps the least urgent queued task for the new one, occupancy stays the same
+     */
+    private boolean shedFor(Task task) {
+        Task victim = delegate.pollLeastUrgent();
+        if (victim == null) {
+            // Drained in the meantime
+            return tryAcquire(task.getPriority()) && insert(task);
+        }
+        if (victim.getPriority() <= task.getPriority()) {
+            delegate.requeue(victim);
+            return false;
+        }
+        if (!insert(task)) {
+            // insert() gave up the victim's slot along with the refused task; requeue takes it back
+            requeue(victim);
+            return false;
+        }
+        shedCount.increment();
+        shedHandler.accept(victim);
+        return true;
+    }
+
+    private int limitFor(int priority) {
+        int index = Math.max(0, priority - 1);
+        return priorityLimits[Math.min(index, priorityLimits.length - 1)];
+    }
+
+    /**
+     * Per-type consumer view that still frees capacity in the shared bound; new work is admitted through the outer queue
+     */
+    private final class PartitionView implements TaskQueue {
+        private final TaskQueue partition;
+
+        private PartitionView(TaskQueue partition) {
+            this.partition = partition;
+        }
+
+        @Override
+        public boolean offer(Task task) {
+            return BoundedTaskQueue.this.offer(task);
+        }
+
+        @Override
+        public int offerAll(Collection<Task> tasks) {
+            return BoundedTaskQueue.this.offerAll(tasks);
+        }
+
+        @Override
+        public boolean requeue(Task task) {
+            return BoundedTaskQueue.this.requeue(task);
+        }
+
+        @Override
+        public Task poll() {
+            Task task = partition.poll();
+            if (task != null) {
+                release(1);
+            }
+            return task;
+        }
+
+        @Override
+        public Task poll(long timeout, TimeUnit unit) throws InterruptedException {
+            Task task = partition.poll(timeout, unit);
+            if (task != null) {
+                release(1);
+            }
+            return task;
+        }
+
+        @Override
+        public int drainTo(Collection<? super Task> sink, int maxElements) {
+            int drained = partition.drainTo(sink, maxElements);
+            if (drained > 0) {
+                release(drained);
+            }
+            return drained;
+        }
+
+        @Override
+        public Task pollLeastUrgent() {
+            Task task = partition.pollLeastUrgent();
+            if (task != null) {
+                release(1);
+            }
+            return task;
+        }
+
+        @Override
+        public Task peekLeastUrgent() {
+            return partition.peekLeastUrgent();
+        }
+
+        @Override
+        public Comparator<? super Task> comparator() {
+            return partition.comparator();
+        }
+
+        @Override
+        public int size() {
+            return partition.size();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package queue;
+
+import model.Task;
+
+import java.time.Duration;
+import java.util.Comparator;
+
+/**
+ * Earliest-deadline-first ordering, in one of two modes:
+ * - WITHIN_PRIORITY: strict priority first; inside a priority band, tasks with a deadline go earliest
+ *   deadline first, ahead of the band's tasks without one, which stay FIFO
+ * - ACROSS_PRIORITIES: one deadline order for all bands; a task without a deadline gets an implicit one of
+ *   createdNanos + priority * implicitBudget, so it still ranks by priority and age and cannot starve
+ *
+ * Like the AgingTaskComparator every key is fixed at creation, so the heap never has to be re-sorted.
+ * Task's natural ordering breaks ties.
+ */
+public class DeadlineTaskComparator implements Comparator<Task> {
+
+    public enum Mode {
+        WITHIN_PRIORITY, ACROSS_PRIORITIES
+    }
+
+    private final Mode mode;
+    private final long implicitBudgetNanos;
+
+    /**
+     * @param implicitBudget per priority level, for tasks without a deadline in ACROSS_PRIORITIES mode
+     */
+    public DeadlineTaskComparator(Mode mode, Duration implicitBudget) {
+        if (implicitBudget.isNegative() || implicitBudget.isZero()) {
+            throw new IllegalArgumentException("implicitBudget must be positive");
+        }
+        this.mode = mode;
+        this.implicitBudgetNanos = implicitBudget.toNanos();
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Deadline the task is ordered by in ACROSS_PRIORITIES mode
+     */
+    public long effectiveDeadline(Task task) {
+        return task.hasDeadline()
+                ? task.getDeadlineNanos()
+                : task.getCreatedNanos() + task.getPriority() * implicitBudgetNanos;
+    }
+
+    @Override
+    public int compare(Task a, Task b) {
+        if (mode == Mode.WITHIN_PRIORITY) {
+            int priorityComparison = Integer.compare(a.getPriority(), b.getPriority());
+            if (priorityComparison != 0) {
+                return priorityComparison;
+            }
+            if (a.hasDeadline() != b.hasDeadline()) {
+                return a.hasDeadline() ? -1 : 1;
+            }
+            if (a.hasDeadline()) {
+                // nanoTime based, so compare by difference
+                int deadlineComparison = Long.compare(a.getDeadlineNanos() - b.getDeadlineNanos(), 0L);
+                if (deadlineComparison != 0) {
+                    return deadlineComparison;
+                }
+            }
+            return a.compareTo(b);
+        }
+        int deadlineComparison = Long.compare(effectiveDeadline(a) - effectiveDeadline(b), 0L);
+        if (deadlineComparison != 0) {
+            return deadlineComparison;
+        }
+        return a.compareTo(b);
+    }
+}
@@ -0,0 +1,423 @@
+package queue;
+
+import model.ETaskType;
+import model.Task;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * TaskQueue decorator that coalesces resends: a new task whose idempotency key belongs to a task that
+ * is still queued or in flight is merged into that task instead of being queued again
+ * - Index of key -> claim on the live task's id, taken with putIfAbsent so concurrent resends agree on one winner;
+ *   only the id is held, so indexed tasks can live off the heap (OffHeapTaskQueue) without being pinned here
+ * - A claim is pending until the delegate accepts or refuses its task; a resend meeting a pending claim
+ *   waits for that decision, then merges if the task was accepted or competes for the key again if not
+ * - The merged duplicate counts as accepted; the coalesce handler gets it together with the id of the task it joined
+ * - Entries expire when the owner calls expire() for the task, i.e. when it reaches a terminal status;
+ *   a resend racing with that expiry may still be merged into the finishing task
+ *
+ * Tasks without a key, and requeued tasks (already indexed), pass straight through.
+ */
+public class IdempotentTaskQueue implements TaskQueue {
+
+    private final TaskQueue delegate;
+    private final BiConsumer<Task, UUID> coalesceHandler;
+
+    private final ConcurrentHashMap<String, Claim> liveByKey = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, String> keysById = new ConcurrentHashMap<>();
+    // Claims of forwarded tasks awaiting admission; held here since the task may expire before it is settled
+    private final ConcurrentHashMap<UUID, Claim> unsettled = new ConcurrentHashMap<>();
+    private final LongAdder coalescedCount = new LongAdder();
+
+    /**
+     * @param coalesceHandler called with (duplicate, id of the existing task) for every merged task, on the offering thread
+     */
+    public IdempotentTaskQueue(TaskQueue delegate, BiConsumer<Task, UUID> coalesceHandler) {
+        this.delegate = delegate;
+        this.coalesceHandler = coalesceHandler;
+    }
+
+    /**
+     * May wait for a concurrent offer of the same key to be accepted or refused, e.g. under a BLOCK policy
+     */
+    @Override
+    public boolean offer(Task task) {
+        String key = task.getIdempotencyKey();
+        if (key == null) {
+            return delegate.offer(task);
+        }
+        while (true) {
+            Claim claim = claim(key, task);
+            if (claim.heldBy(task)) {
+                boolean accepted = delegate.offer(task);
+                decide(claim, accepted);
+                return accepted;
+            }
+            try {
+                if (claim.awaitAdmitted()) {
+                    coalesce(task, claim.taskId);
+                    return true;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            // The earlier task was refused and its claim released; compete for the key again
+        }
+    }
+
+    @Override
+    public int offerAll(Collection<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return 0;
+        }
+        List<Task> batch = new ArrayList<>(tasks);
+        int done = 0;
+        while (done < batch.size()) {
+            Prefix prefix = offerPrefix(batch.subList(done, batch.size()));
+            done += prefix.accepted();
+            if (prefix.blockedOn() == null) {
+                return done;
+            }
+            // Every claim this batch took is decided by now, so waiting on another offer cannot deadlock
+            try {
+                if (prefix.blockedOn().awaitAdmitted()) {
+                    coalesce(batch.get(done), prefix.blockedOn().taskId);
+                    done++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return done;
+            }
+        }
+        return done;
+    }
+
+    /**
+     * Offers tasks up to the first one whose key is held by another offer's pending claim
+     * @return how many tasks were accepted, and the pending claim that stopped the batch if all before it were
+     */
+    private Prefix offerPrefix(List<Task> batch) {
+        // Claim keys in batch order; duplicates inside the batch coalesce onto their first occurrence
+        Claim[] existingFor = new Claim[batch.size()];
+        List<Task> fresh = new ArrayList<>(batch.size());
+        Claim[] freshClaims = new Claim[batch.size()];
+        int[] freshPositions = new int[batch.size()];
+        int end = batch.size();
+        Claim blockedOn = null;
+        for (int i = 0; i < batch.size(); i++) {
+            Task task = batch.get(i);
+            String key = task.getIdempotencyKey();
+            Claim claim = key == null ? null : claim(key, task);
+            if (claim == null || claim.heldBy(task)) {
+                freshClaims[fresh.size()] = claim;
+                freshPositions[fresh.size()] = i;
+                fresh.add(task);
+            } else if (claim.isAdmitted() || isOwn(claim, freshClaims, fresh.size())) {
+                existingFor[i] = claim;
+            } else {
+                blockedOn = claim;
+                end = i;
+                break;
+            }
+        }
+
+        int inserted = fresh.isEmpty() ? 0 : delegate.offerAll(fresh);
+        for (int j = 0; j < fresh.size(); j++) {
+            if (freshClaims[j] != null) {
+                decide(freshClaims[j], j < inserted);
+            }
+        }
+        // Keep the prefix contract: stop at the first task the delegate refused
+        int accepted = inserted < fresh.size() ? freshPositions[inserted] : end;
+        for (int i = 0; i < accepted; i++) {
+            if (existingFor[i] != null) {
+                coalesce(batch.get(i), existingFor[i].taskId);
+            }
+        }
+        return new Prefix(accepted, accepted == end ? blockedOn : null);
+    }
+
+    private static boolean isOwn(Claim claim, Claim[] freshClaims, int freshCount) {
+        for (int j = 0; j < freshCount; j++) {
+            if (freshClaims[j] == claim) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean requeue(Task task) {
+        return delegate.requeue(task);
+    }
+
+    /**
+     * Indexes a task that is already in the underlying queue, e.g. one recovered from the write-ahead log
+     */
+    public void register(Task task) {
+        String key = task.getIdempotencyKey();
+        if (key != null) {
+            Claim claim = claim(key, task);
+            if (claim.heldBy(task)) {
+                claim.decide(true);
+            }
+        }
+    }
+
+    /**
+     * Indexes a task handed over from another node, or merges it into the live task already holding its key
+     * Only for tasks that already passed admission control; forwarded work goes through claimOrCoalesce().
+     * Never waits: a key held by a pending offer leaves the task unindexed, to be queued on its own.
+     * @return true if the task should be queued, false if it was merged
+     */
+    public boolean registerOrCoalesce(Task task) {
+        String key = task.getIdempotencyKey();
+        if (key == null) {
+            return true;
+        }
+        Claim claim = claim(key, task);
+        if (claim.heldBy(task)) {
+            claim.decide(true);
+            return true;
+        }
+        if (!claim.isAdmitted()) {
+            return true;
+        }
+        coalesce(task, claim.taskId);
+        return false;
+    }
+
+    /**
+     * Takes a pending claim on the key of a task forwarded from another node, or merges the task into the live task
+     * already holding it. The claim stays pending until settle() reports the admission decision, so resends offered
+     * meanwhile wait for it instead of being merged into a task that may still be refused.
+     * Never waits: a key held by a pending offer leaves the task unindexed, to be offered on its own.
+     * @return true if the task should be offered, false if it was merged
+     */
+    public boolean claimOrCoalesce(Task task) {
+        String key = task.getIdempotencyKey();
+        if (key == null) {
+            return true;
+        }
+        Claim claim = claim(key, task);
+        if (claim.heldBy(task)) {
+            unsettled.put(task.getId(), claim);
+            return true;
+        }
+        if (!claim.isAdmitted()) {
+            return true;
+        }
+        coalesce(task, claim.taskId);
+        return false;
+    }
+
+    /**
+     * Reports whether a task claimed with claimOrCoalesce() was accepted by the queue; a refused task releases its key
+     */
+    public void settle(Task task, boolean accepted) {
+        Claim claim = unsettled.remove(task.getId());
+        if (claim != null) {
+            decide(claim, accepted);
+        }
+    }
+
+    /**
+     * Releases the task's key so later tasks with it are queued again; call once the task is terminal
+     */
+    public void expire(UUID taskId) {
+        unindex(taskId);
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    /**
+     * Number of keys currently held by queued or in-flight tasks
+     */
+    public int getLiveKeyCount() {
+        return liveByKey.size();
+    }
+
+    /**
+     * @return the claim holding the key; a new pending claim for the given task if the key was free
+     */
+    private Claim claim(String key, Task task) {
+        Claim claim = new Claim(task.getId());
+        Claim existing = liveByKey.putIfAbsent(key, claim);
+        if (existing != null) {
+            return existing;
+        }
+        // Recorded before the task can reach a worker, so expire() always finds it
+        keysById.put(task.getId(), key);
+        return claim;
+    }
+
+    /**
+     * Settles a pending claim; a refused task's key is released before waiting resends are woken
+     */
+    private void decide(Claim claim, boolean accepted) {
+        if (!accepted) {
+            unindex(claim.taskId);
+        }
+        claim.decide(accepted);
+    }
+
+    private void unindex(UUID taskId) {
+        String key = keysById.remove(taskId);
+        if (key != null) {
+            liveByKey.computeIfPresent(key, (k, owner) -> owner.taskId.equals(taskId) ? null : owner);
+        }
+    }
+
+    private void coalesce(Task duplicate, UUID existing) {
+        coalescedCount.increment();
+        coalesceHandler.accept(duplicate, existing);
+    }
+
+    @Override
+    public Task poll() {
+        return delegate.poll();
+    }
+
+    @Override
+    public Task poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.poll(timeout, unit);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Task> sink, int maxElements) {
+        return delegate.drainTo(sink, maxElements);
+    }
+
+    @Override
+    public Task pollLeastUrgent() {
+        return delegate.pollLeastUrgent();
+    }
+
+    @Override
+    public Task peekLeastUrgent() {
+        return delegate.peekLeastUrgent();
+    }
+
+    @Override
+    public Comparator<? super Task> comparator() {
+        return delegate.comparator();
+    }
+
+    @Override
+    public TaskQueue partition(ETaskType type) {
+        TaskQueue partition = delegate.partition(type);
+        return partition == delegate ? this : new PartitionView(partition);
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    private record Prefix(int accepted, Claim blockedOn) {
+    }
+
+    /**
+     * A task's hold on its key; pending until the delegate has accepted or refused the task
+     */
+    private static final class Claim {
+        private final UUID taskId;
+        private final CountDownLatch decision = new CountDownLatch(1);
+        private volatile boolean admitted;
+
+        private Claim(UUID taskId) {
+            this.taskId = taskId;
+        }
+
+        boolean heldBy(Task task) {
+            return taskId.equals(task.getId());
+        }
+
+        void decide(boolean admitted) {
+            this.admitted = admitted;
+            decision.countDown();
+        }
+
+        boolean isAdmitted() {
+            return decision.getCount() == 0 && admitted;
+        }
+
+        boolean awaitAdmitted() throws InterruptedException {
+            decision.await();
+            return admitted;
+        }
+    }
+
+    /**
+     * Per-type consumer view; new work still goes through the shared index
+     */
+    private final class PartitionView implements TaskQueue {
+        private final TaskQueue partition;
+
+        private PartitionView(TaskQueue partition) {
+            this.partition = partition;
+        }
+
+        @Override
+        public boolean offer(Task task) {
+            return IdempotentTaskQueue.this.offer(task);
+        }
+
+        @Override
+        public int offerAll(Collection<Task> tasks) {
+            return IdempotentTaskQueue.this.offerAll(tasks);
+        }
+
+        @Override
+        public boolean requeue(Task task) {
+            return partition.requeue(task);
+        }
+
+        @Override
+        public Task poll() {
+            return partition.poll();
+        }
+
+        @Override
+        public Task poll(long timeout, TimeUnit unit) throws InterruptedException {
+            return partition.poll(timeout, unit);
+        }
+
+        @Override
+        public int drainTo(Collection<? super Task> sink, int maxElements) {
+            return partition.drainTo(sink, maxElements);
+        }
+
+        @Override
+        public Task pollLeastUrgent() {
+            return partition.pollLeastUrgent();
+        }
+
+        @Override
+        public Task peekLeastUrgent() {
+            return partition.peekLeastUrgent();
+        }
+
+        @Override
+        public Comparator<? super Task> comparator() {
+            return partition.comparator();
+        }
+
+        @Override
+        public int size() {
+            return partition.size();
+        }
+    }
+}
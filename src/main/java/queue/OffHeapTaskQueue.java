@@ -0,0 +1,279 @@
+package queue;
+
+import model.Task;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * TaskQueue whose tasks live off-heap in a TaskSlabStore while they wait
+ * - The heap side holds one primitive ring of long handles per priority level, 8 bytes per queued task,
+ *   so a growing backlog adds no objects for the garbage collector to trace
+ * - Tasks are encoded before and decoded after the lock, which only guards the handle rings
+ * - Ordering as in StripedTaskQueue with one shard: strict priority across lanes, FIFO within a lane
+ *
+ * Every poll hands out a freshly decoded Task, so a task taken twice (e.g. after a retry) is a new object
+ * with the same id; nothing may rely on Task identity across the queue.
+ */
+public class OffHeapTaskQueue implements TaskQueue {
+
+    private static final int DEFAULT_PRIORITY_LEVELS = 5;
+    private static final int INITIAL_LANE_CAPACITY = 64;
+
+    private final TaskSlabStore store;
+    private final HandleRing[] lanes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    // Guarded by lock
+    private int size;
+
+    public OffHeapTaskQueue(TaskSlabStore store) {
+        this(store, DEFAULT_PRIORITY_LEVELS);
+    }
+
+    public OffHeapTaskQueue(TaskSlabStore store, int priorityLevels) {
+        if (priorityLevels < 1) {
+            throw new IllegalArgumentException("priorityLevels must be positive");
+        }
+        this.store = store;
+        this.lanes = new HandleRing[priorityLevels];
+        for (int level = 0; level < priorityLevels; level++) {
+            lanes[level] = new HandleRing();
+        }
+    }
+
+    @Override
+    public boolean offer(Task task) {
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+        long handle = store.store(task);
+        lock.lock();
+        try {
+            lanes[laneFor(task.getPriority())].addLast(handle);
+            size++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    @Override
+    public int offerAll(Collection<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return 0;
+        }
+        long[] handles = new long[tasks.size()];
+        int[] levels = new int[handles.length];
+        int i = 0;
+        for (Task task : tasks) {
+            if (task == null) {
+                throw new NullPointerException("task");
+            }
+            levels[i] = laneFor(task.getPriority());
+            handles[i++] = store.store(task);
+        }
+        lock.lock();
+        try {
+            for (int j = 0; j < handles.length; j++) {
+                lanes[levels[j]].addLast(handles[j]);
+            }
+            size += handles.length;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        return handles.length;
+    }
+
+    @Override
+    public Task poll() {
+        long handle;
+        lock.lock();
+        try {
+            if (size == 0) {
+                return null;
+            }
+            handle = pollHandle();
+        } finally {
+            lock.unlock();
+        }
+        return store.take(handle);
+    }
+
+    @Override
+    public Task poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        long handle;
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                if (nanos <= 0L) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            handle = pollHandle();
+        } finally {
+            lock.unlock();
+        }
+        return store.take(handle);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Task> sink, int maxElements) {
+        long[] handles;
+        int drained;
+        // One lock acquisition for the whole batch, decoding happens after it
+        lock.lock();
+        try {
+            drained = Math.min(size, maxElements);
+            if (drained <= 0) {
+                return 0;
+            }
+            handles = new long[drained];
+            for (int i = 0; i < drained; i++) {
+                handles[i] = pollHandle();
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (long handle : handles) {
+            sink.add(store.take(handle));
+        }
+        return drained;
+    }
+
+    /**
+     * Newest task of the least urgent non-empty lane, the one a heap ordered by Task would rank last
+     */
+    @Override
+    public Task pollLeastUrgent() {
+        long handle = -1;
+        boolean found = false;
+        lock.lock();
+        try {
+            for (int level = lanes.length - 1; level >= 0 && !found; level--) {
+                if (!lanes[level].isEmpty()) {
+                    handle = lanes[level].pollLast();
+                    size--;
+                    found = true;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return found ? store.take(handle) : null;
+    }
+
+    /**
+     * Decodes the task under the lock: a handle still in its lane cannot be taken and its slot reused meanwhile
+     */
+    @Override
+    public Task peekLeastUrgent() {
+        lock.lock();
+        try {
+            for (int level = lanes.length - 1; level >= 0; level--) {
+                if (!lanes[level].isEmpty()) {
+                    return store.load(lanes[level].peekLast());
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public TaskSlabStore getStore() {
+        return store;
+    }
+
+    /**
+     * Called with the lock held and size > 0
+     */
+    private long pollHandle() {
+        for (HandleRing lane : lanes) {
+            if (!lane.isEmpty()) {
+                size--;
+                return lane.pollFirst();
+            }
+        }
+        throw new IllegalStateException("size is " + size + " but every lane is empty");
+    }
+
+    private int laneFor(int priority) {
+        int level = priority - 1;
+        if (level < 0) {
+            return 0;
+        }
+        return Math.min(level, lanes.length - 1);
+    }
+
+    /**
+     * Growable ring of handles; shrinks again once a burst has drained so the heap side stays small
+     */
+    private static final class HandleRing {
+        private long[] items = new long[INITIAL_LANE_CAPACITY];
+        private int head;
+        private int count;
+
+        boolean isEmpty() {
+            return count == 0;
+        }
+
+        void addLast(long handle) {
+            if (count == items.length) {
+                resize(items.length * 2);
+            }
+            items[(head + count) & (items.length - 1)] = handle;
+            count++;
+        }
+
+        long pollFirst() {
+            long handle = items[head];
+            head = (head + 1) & (items.length - 1);
+            count--;
+            shrinkIfSparse();
+            return handle;
+        }
+
+        long peekLast() {
+            return items[(head + count - 1) & (items.length - 1)];
+        }
+
+        long pollLast() {
+            count--;
+            long handle = items[(head + count) & (items.length - 1)];
+            shrinkIfSparse();
+            return handle;
+        }
+
+        private void shrinkIfSparse() {
+            if (items.length > INITIAL_LANE_CAPACITY && count < items.length / 4) {
+                resize(items.length / 2);
+            }
+        }
+
+        private void resize(int capacity) {
+            long[] resized = new long[capacity];
+            for (int i = 0; i < count; i++) {
+                resized[i] = items[(head + i) & (items.length - 1)];
+            }
+            items = resized;
+            head = 0;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package queue;
+
+import model.Task;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * TaskQueue backed by a single lock-guarded binary heap (same design as PriorityBlockingQueue)
+ * Strict priority ordering, but every operation goes through one lock.
+ * Owning the lock lets bulk inserts and drains take it once per batch instead of once per task.
+ */
+public class PriorityTaskQueue implements TaskQueue {
+
+    private final PriorityQueue<Task> heap;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    public PriorityTaskQueue() {
+        this.heap = new PriorityQueue<>();
+    }
+
+    /**
+     * @param comparator serving order, e.g. an AgingTaskComparator; null for Task's natural ordering
+     */
+    public PriorityTaskQueue(Comparator<? super Task> comparator) {
+        this.heap = new PriorityQueue<>(comparator);
+    }
+
+    @Override
+    public boolean offer(Task task) {
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+        lock.lock();
+        try {
+            heap.offer(task);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    @Override
+    public int offerAll(Collection<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return 0;
+        }
+        lock.lock();
+        try {
+            for (Task task : tasks) {
+                if (task == null) {
+                    throw new NullPointerException("task");
+                }
+                heap.offer(task);
+            }
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        return tasks.size();
+    }
+
+    @Override
+    public Task poll() {
+        lock.lock();
+        try {
+            return heap.poll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Task poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            Task task;
+            while ((task = heap.poll()) == null) {
+                if (nanos <= 0L) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return task;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Task> sink, int maxElements) {
+        // One lock acquisition for the whole batch
+        lock.lock();
+        try {
+            int drained = 0;
+            Task task;
+            while (drained < maxElements && (task = heap.poll()) != null) {
+                sink.add(task);
+                drained++;
+            }
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Task pollLeastUrgent() {
+        lock.lock();
+        try {
+            Task leastUrgent = findLeastUrgent();
+            if (leastUrgent != null) {
+                heap.remove(leastUrgent);
+            }
+            return leastUrgent;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Task peekLeastUrgent() {
+        lock.lock();
+        try {
+            return findLeastUrgent();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called with the lock held; the heap only orders its head, so finding the tail is a linear scan
+     */
+    private Task findLeastUrgent() {
+        Task leastUrgent = null;
+        for (Task task : heap) {
+            if (leastUrgent == null || compare(task, leastUrgent) > 0) {
+                leastUrgent = task;
+            }
+        }
+        return leastUrgent;
+    }
+
+    @Override
+    public Comparator<? super Task> comparator() {
+        return heap.comparator();
+    }
+
+    private int compare(Task a, Task b) {
+        Comparator<? super Task> comparator = heap.comparator();
+        return comparator != null ? comparator.compare(a, b) : a.compareTo(b);
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return heap.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package queue;
+
+import model.Task;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped multi-lane task queue
+ * - One lane per priority level, each lane split into lock-free shards
+ * - Producers append to the shard picked by their thread, so they rarely touch the same shard
+ * - Consumers scan lanes from the highest priority down, starting at their home shard
+ *   and stealing from the other shards of the lane when it is empty
+ *
+ * Ordering is approximate: priorities are respected across lanes, and tasks are FIFO
+ * within a shard, but two shards of the same lane are not ordered against each other.
+ * Priorities outside 1..priorityLevels are clamped to the nearest lane.
+ *
+ * With an AgingTaskComparator, consumers compare the head of each lane by aged score instead
+ * of always taking the most urgent lane, so a long-waiting low-priority lane gets served too.
+ */
+public class StripedTaskQueue implements TaskQueue {
+
+    private static final int DEFAULT_PRIORITY_LEVELS = 5;
+
+    private final int priorityLevels;
+    private final int shardsPerLane;
+    private final ConcurrentLinkedQueue<Task>[][] lanes;
+    private final AgingTaskComparator aging;
+    private final LongAdder size = new LongAdder();
+
+    // Only consumers that found the queue empty take this lock, producers signal it when someone waits
+    private final ReentrantLock waitLock = new ReentrantLock();
+    private final Condition notEmpty = waitLock.newCondition();
+    private final AtomicInteger waitingConsumers = new AtomicInteger(0);
+
+    public StripedTaskQueue() {
+        this(null);
+    }
+
+    public StripedTaskQueue(AgingTaskComparator aging) {
+        this(DEFAULT_PRIORITY_LEVELS, Runtime.getRuntime().availableProcessors(), aging);
+    }
+
+    public StripedTaskQueue(int priorityLevels, int shardsPerLane) {
+        this(priorityLevels, shardsPerLane, null);
+    }
+
+    /**
+     * @param aging aged-score ordering across lanes, or null for strict priority
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public StripedTaskQueue(int priorityLevels, int shardsPerLane, AgingTaskComparator aging) {
+        if (priorityLevels < 1 || shardsPerLane < 1) {
+            throw new IllegalArgumentException("priorityLevels and shardsPerLane must be positive");
+        }
+        this.priorityLevels = priorityLevels;
+        this.shardsPerLane = shardsPerLane;
+        this.aging = aging;
+        this.lanes = new ConcurrentLinkedQueue[priorityLevels][shardsPerLane];
+        for (int level = 0; level < priorityLevels; level++) {
+            for (int shard = 0; shard < shardsPerLane; shard++) {
+                lanes[level][shard] = new ConcurrentLinkedQueue<>();
+            }
+        }
+    }
+
+    @Override
+    public boolean offer(Task task) {
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+        lanes[laneFor(task.getPriority())][homeShard()].offer(task);
+        size.increment();
+
+        if (waitingConsumers.get() > 0) {
+            signalNotEmpty();
+        }
+        return true;
+    }
+
+    @Override
+    public int offerAll(Collection<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return 0;
+        }
+        int shard = homeShard();
+        for (Task task : tasks) {
+            if (task == null) {
+                throw new NullPointerException("task");
+            }
+            lanes[laneFor(task.getPriority())][shard].offer(task);
+        }
+        size.add(tasks.size());
+
+        if (waitingConsumers.get() > 0) {
+            signalAllNotEmpty();
+        }
+        return tasks.size();
+    }
+
+    @Override
+    public Task poll() {
+        int home = homeShard();
+        if (aging != null) {
+            return pollAged(home);
+        }
+        for (int level = 0; level < priorityLevels; level++) {
+            Task task = pollLane(level, home);
+            if (task != null) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Takes from the lane whose head has the lowest aged score
+     * Heads are only peeked, so a concurrent consumer may take the chosen one first; the lane
+     * then yields its next task, or the scan is repeated if the lane ran empty meanwhile.
+     */
+    private Task pollAged(int home) {
+        while (true) {
+            int bestLevel = -1;
+            long bestScore = 0;
+            for (int level = 0; level < priorityLevels; level++) {
+                Task head = peekLane(level, home);
+                if (head != null) {
+                    long score = aging.agedScore(head);
+                    if (bestLevel < 0 || score - bestScore < 0) {
+                        bestLevel = level;
+                        bestScore = score;
+                    }
+                }
+            }
+            if (bestLevel < 0) {
+                return null;
+            }
+            Task task = pollLane(bestLevel, home);
+            if (task != null) {
+                return task;
+            }
+        }
+    }
+
+    private Task pollLane(int level, int home) {
+        ConcurrentLinkedQueue<Task>[] shards = lanes[level];
+        // Own shard first, then steal from the rest of the lane
+        for (int i = 0; i < shardsPerLane; i++) {
+            Task task = shards[(home + i) % shardsPerLane].poll();
+            if (task != null) {
+                size.decrement();
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private Task peekLane(int level, int home) {
+        ConcurrentLinkedQueue<Task>[] shards = lanes[level];
+        for (int i = 0; i < shardsPerLane; i++) {
+            Task task = shards[(home + i) % shardsPerLane].peek();
+            if (task != null) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Task poll(long timeout, TimeUnit unit) throws InterruptedException {
+        Task task = poll();
+        if (task != null) {
+            return task;
+        }
+
+        long nanos = unit.toNanos(timeout);
+        waitLock.lockInterruptibly();
+        waitingConsumers.incrementAndGet();
+        try {
+            // Re-check after registering as a waiter so a concurrent offer cannot be missed
+            while ((task = poll()) == null) {
+                if (nanos <= 0L) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return task;
+        } finally {
+            waitingConsumers.decrementAndGet();
+            waitLock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Task> sink, int maxElements) {
+        int home = homeShard();
+        if (aging != null) {
+            int drained = 0;
+            Task task;
+            while (drained < maxElements && (task = pollAged(home)) != null) {
+                sink.add(task);
+                drained++;
+            }
+            return drained;
+        }
+        int drained = 0;
+        for (int level = 0; level < priorityLevels && drained < maxElements; level++) {
+            ConcurrentLinkedQueue<Task>[] shards = lanes[level];
+            for (int i = 0; i < shardsPerLane && drained < maxElements; i++) {
+                ConcurrentLinkedQueue<Task> shard = shards[(home + i) % shardsPerLane];
+                Task task;
+                while (drained < maxElements && (task = shard.poll()) != null) {
+                    sink.add(task);
+                    drained++;
+                }
+            }
+        }
+        if (drained > 0) {
+            size.add(-drained);
+        }
+        return drained;
+    }
+
+    @Override
+    public Task pollLeastUrgent() {
+        int home = homeShard();
+        for (int level = priorityLevels - 1; level >= 0; level--) {
+            Task task = pollLane(level, home);
+            if (task != null) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Task peekLeastUrgent() {
+        int home = homeShard();
+        for (int level = priorityLevels - 1; level >= 0; level--) {
+            Task task = peekLane(level, home);
+            if (task != null) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Comparator<? super Task> comparator() {
+        return aging;
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.max(0, size.sum());
+    }
+
+    private void signalNotEmpty() {
+        waitLock.lock();
+        try {
+            notEmpty.signal();
+        } finally {
+            waitLock.unlock();
+        }
+    }
+
+    private void signalAllNotEmpty() {
+        waitLock.lock();
+        try {
+            notEmpty.signalAll();
+        } finally {
+            waitLock.unlock();
+        }
+    }
+
+    private int laneFor(int priority) {
+        int level = priority - 1;
+        if (level < 0) {
+            return 0;
+        }
+        return Math.min(level, priorityLevels - 1);
+    }
+
+    private int homeShard() {
+        return (int) (Thread.currentThread().threadId() % shardsPerLane);
+    }
+}
@@ -0,0 +1,90 @@
+package queue;
+
+import model.ETaskType;
+import model.Task;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Abstraction over the shared task queue used by producers and workers
+ * Lets MainApp swap the single-lock PriorityBlockingQueue for a striped implementation
+ */
+public interface TaskQueue {
+
+    /**
+     * Inserts a task into the queue
+     * @return true if the task was accepted
+     */
+    boolean offer(Task task);
+
+    /**
+     * Inserts a batch of tasks, taking the queue's lock (if any) once for the whole batch
+     * Tasks are admitted in iteration order, so when fewer than all are accepted
+     * the accepted ones are the first N.
+     * @return the number of tasks accepted
+     */
+    int offerAll(Collection<Task> tasks);
+
+    /**
+     * Puts back a task that was already admitted once (a retry, or work a worker gave up)
+     * Bounded queues accept it even when full, admission control only applies to new work.
+     */
+    default boolean requeue(Task task) {
+        return offer(task);
+    }
+
+    /**
+     * Retrieves and removes the next task, or returns null if the queue is empty
+     */
+    Task poll();
+
+    /**
+     * Retrieves and removes the next task, waiting up to the given time if necessary
+     * @return the next task, or null if the timeout elapsed
+     */
+    Task poll(long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Removes up to maxElements tasks in priority order and adds them to the sink, without waiting
+     * @return the number of tasks transferred
+     */
+    int drainTo(Collection<? super Task> sink, int maxElements);
+
+    /**
+     * Removes and returns a task of the least urgent priority currently queued, or null if empty
+     * Used to shed load; not meant for the regular consumption path.
+     */
+    Task pollLeastUrgent();
+
+    /**
+     * Returns, without removing it, the task pollLeastUrgent would take now, or null if empty
+     * Queues that cannot tell without removing it return null; composite queues use it to pick a victim.
+     */
+    default Task peekLeastUrgent() {
+        return null;
+    }
+
+    /**
+     * Order the queue serves tasks in, or null for Task's natural ordering
+     * Workers use it to order tasks they hold locally (e.g. a drained batch) the same way.
+     */
+    default Comparator<? super Task> comparator() {
+        return null;
+    }
+
+    /**
+     * Consumer view of the tasks of one type, for per-type worker pools (bulkheads)
+     * Queues that are not partitioned by type return themselves.
+     */
+    default TaskQueue partition(ETaskType type) {
+        return this;
+    }
+
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+}
@@ -0,0 +1,290 @@
+package queue;
+
+import model.Task;
+import model.TaskPayload;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps task bodies outside the Java heap, in slabs of direct memory, and hands out long handles for them
+ * - Slots come in power-of-two size classes from 64 bytes to 4 KiB; each class grows one slab at a time
+ *   and recycles freed slots through a free list of ints, so a stored task costs no heap objects
+ * - Slot layout: fixed 32-byte header, then the variable body
+ *     sequence (long) | created nanos (long) | sla nanos (long) | priority (int) | body length (int)
+ *     name | payload | idempotency key   (each an int length, -1 for null, then the bytes)
+ * - Handle: size class (8 bits) | slab (24 bits) | slot in slab (32 bits)
+ *
+ * A task too large for the biggest class is kept on the heap under an overflow handle; that should be rare.
+ * Slabs are reused but not released, so reserved memory follows the backlog's high-water mark.
+ * Slots are written and read with absolute ByteBuffer access, so only slot allocation takes a lock.
+ */
+public class TaskSlabStore {
+
+    private static final int HEADER_SIZE = 32;
+    private static final int MIN_SLOT_SHIFT = 6;  // 64 bytes
+    private static final int MAX_SLOT_SHIFT = 12; // 4 KiB
+    private static final int OVERFLOW_CLASS = 0xFF;
+    private static final int DEFAULT_SLAB_SIZE = 1 << 20;
+
+    private static final ThreadLocal<ByteBuffer> SCRATCH =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(1 << MAX_SLOT_SHIFT));
+
+    private final SizeClass[] sizeClasses = new SizeClass[MAX_SLOT_SHIFT - MIN_SLOT_SHIFT + 1];
+    private final ConcurrentHashMap<Long, Task> overflow = new ConcurrentHashMap<>();
+    private final AtomicLong nextOverflowId = new AtomicLong();
+    private final LongAdder storedCount = new LongAdder();
+    private final LongAdder usedBytes = new LongAdder();
+
+    public TaskSlabStore() {
+        this(DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * @param slabSize bytes of direct memory reserved per slab; at least one 4 KiB slot
+     */
+    public TaskSlabStore(int slabSize) {
+        if (slabSize < (1 << MAX_SLOT_SHIFT)) {
+            throw new IllegalArgumentException("slabSize must hold at least one " + (1 << MAX_SLOT_SHIFT) + "-byte slot");
+        }
+        for (int i = 0; i < sizeClasses.length; i++) {
+            sizeClasses[i] = new SizeClass(1 << (MIN_SLOT_SHIFT + i), slabSize);
+        }
+    }
+
+    /**
+     * Copies the task into a slot; the Task object itself is not kept
+     * @return the handle to load or free it with
+     */
+    public long store(Task task) {
+        byte[] name = utf8(task.getName());
+        byte[] key = utf8(task.getIdempotencyKey());
+        TaskPayload payload = task.getPayload();
+        int bodyLength = 4 + length(name) + 4 + (payload == null ? 0 : payload.encodedSize()) + 4 + length(key);
+        int slotSize = HEADER_SIZE + bodyLength;
+        int classIndex = classFor(slotSize);
+        if (classIndex < 0) {
+            long id = nextOverflowId.getAndIncrement();
+            overflow.put(id, task);
+            storedCount.increment();
+            return ((long) OVERFLOW_CLASS << 56) | id;
+        }
+
+        ByteBuffer body = SCRATCH.get().clear();
+        putBytes(body, name);
+        if (payload == null) {
+            body.putInt(-1);
+        } else {
+            body.putInt(payload.encodedSize());
+            payload.writeTo(body);
+        }
+        putBytes(body, key);
+
+        SizeClass sizeClass = sizeClasses[classIndex];
+        int slot = sizeClass.allocate();
+        ByteBuffer slab = sizeClass.slab(slot);
+        int offset = sizeClass.offset(slot);
+        slab.putLong(offset, task.getSequence());
+        slab.putLong(offset + 8, task.getCreatedNanos());
+        slab.putLong(offset + 16, task.getSlaNanos());
+        slab.putInt(offset + 24, task.getPriority());
+        slab.putInt(offset + 28, bodyLength);
+        slab.put(offset + HEADER_SIZE, body, 0, bodyLength);
+
+        storedCount.increment();
+        usedBytes.add(sizeClass.slotSize);
+        return ((long) classIndex << 56) | ((long) sizeClass.slabIndex(slot) << 32) | sizeClass.slotInSlab(slot);
+    }
+
+    /**
+     * Rebuilds the task and releases its slot; the handle is invalid afterwards
+     */
+    public Task take(long handle) {
+        int classIndex = (int) (handle >>> 56);
+        if (classIndex == OVERFLOW_CLASS) {
+            Task task = overflow.remove(handle & 0x00FF_FFFF_FFFF_FFFFL);
+            storedCount.decrement();
+            return task;
+        }
+        Task task = load(handle);
+        SizeClass sizeClass = sizeClasses[classIndex];
+        sizeClass.free(sizeClass.slot((int) ((handle >>> 32) & 0xFF_FFFF), (int) handle));
+        storedCount.decrement();
+        usedBytes.add(-sizeClass.slotSize);
+        return task;
+    }
+
+    /**
+     * Rebuilds the task and keeps its slot; the caller must make sure no one takes the handle meanwhile
+     */
+    public Task load(long handle) {
+        int classIndex = (int) (handle >>> 56);
+        if (classIndex == OVERFLOW_CLASS) {
+            return overflow.get(handle & 0x00FF_FFFF_FFFF_FFFFL);
+        }
+        SizeClass sizeClass = sizeClasses[classIndex];
+        int slot = sizeClass.slot((int) ((handle >>> 32) & 0xFF_FFFF), (int) handle);
+        ByteBuffer slab = sizeClass.slab(slot);
+        int offset = sizeClass.offset(slot);
+
+        long sequence = slab.getLong(offset);
+        long createdNanos = slab.getLong(offset + 8);
+        long slaNanos = slab.getLong(offset + 16);
+        int priority = slab.getInt(offset + 24);
+        int bodyLength = slab.getInt(offset + 28);
+        ByteBuffer body = SCRATCH.get().clear();
+        slab.get(offset + HEADER_SIZE, body.array(), 0, bodyLength);
+        body.limit(bodyLength);
+
+        String name = getString(body);
+        int payloadLength = body.getInt();
+        TaskPayload payload = payloadLength < 0 ? null : TaskPayload.readFrom(body, payloadLength);
+        String idempotencyKey = getString(body);
+        return Task.builder()
+                .sequence(sequence)
+                .createdNanos(createdNanos)
+                .name(name)
+                .priority(priority)
+                .payload(payload)
+                .idempotencyKey(idempotencyKey)
+                .slaNanos(slaNanos)
+                .build();
+    }
+
+    public long getStoredCount() {
+        return storedCount.sum();
+    }
+
+    /**
+     * Bytes of direct memory taken by stored tasks, rounded up to their slot size
+     */
+    public long getUsedBytes() {
+        return usedBytes.sum();
+    }
+
+    /**
+     * Bytes of direct memory reserved by all slabs, used or not
+     */
+    public long getReservedBytes() {
+        long reserved = 0;
+        for (SizeClass sizeClass : sizeClasses) {
+            reserved += sizeClass.reservedBytes();
+        }
+        return reserved;
+    }
+
+    public int getOverflowCount() {
+        return overflow.size();
+    }
+
+    private static int classFor(int size) {
+        for (int shift = MIN_SLOT_SHIFT; shift <= MAX_SLOT_SHIFT; shift++) {
+            if (size <= 1 << shift) {
+                return shift - MIN_SLOT_SHIFT;
+            }
+        }
+        return -1;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    /**
+     * Slots of one size, numbered across slabs: slot = slab * slotsPerSlab + slot in slab
+     */
+    private static final class SizeClass {
+        private final int slotSize;
+        private final int slotsPerSlab;
+        // Replaced, never mutated in place, so readers need no lock
+        private volatile ByteBuffer[] slabs = new ByteBuffer[0];
+
+        // Guarded by this
+        private int[] freeSlots = new int[0];
+        private int freeCount;
+
+        private SizeClass(int slotSize, int slabSize) {
+            this.slotSize = slotSize;
+            this.slotsPerSlab = slabSize / slotSize;
+        }
+
+        synchronized int allocate() {
+            if (freeCount == 0) {
+                addSlab();
+            }
+            return freeSlots[--freeCount];
+        }
+
+        synchronized void free(int slot) {
+            freeSlots[freeCount++] = slot;
+        }
+
+        private void addSlab() {
+            ByteBuffer[] grown = new ByteBuffer[slabs.length + 1];
+            System.arraycopy(slabs, 0, grown, 0, slabs.length);
+            grown[slabs.length] = ByteBuffer.allocateDirect(slotsPerSlab * slotSize);
+            int first = slabs.length * slotsPerSlab;
+            int total = grown.length * slotsPerSlab;
+            if (freeSlots.length < total) {
+                int[] larger = new int[total];
+                System.arraycopy(freeSlots, 0, larger, 0, freeCount);
+                freeSlots = larger;
+            }
+            // Pushed in reverse, so the slab is handed out from its start
+            for (int slot = total - 1; slot >= first; slot--) {
+                freeSlots[freeCount++] = slot;
+            }
+            slabs = grown;
+        }
+
+        ByteBuffer slab(int slot) {
+            return slabs[slot / slotsPerSlab];
+        }
+
+        int offset(int slot) {
+            return (slot % slotsPerSlab) * slotSize;
+        }
+
+        int slabIndex(int slot) {
+            return slot / slotsPerSlab;
+        }
+
+        int slotInSlab(int slot) {
+            return slot % slotsPerSlab;
+        }
+
+        int slot(int slabIndex, int slotInSlab) {
+            return slabIndex * slotsPerSlab + slotInSlab;
+        }
+
+        long reservedBytes() {
+            return (long) slabs.length * slotsPerSlab * slotSize;
+        }
+    }
+}
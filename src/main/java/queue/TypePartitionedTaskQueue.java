@@ -0,0 +1,200 @@
+package queue;
+
+import model.ETaskType;
+import model.Task;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * One sub-queue per task type, so each type can be consumed by its own worker pool (bulkhead)
+ * - offer routes a task to its type's partition; partition(type) is the per-type consumer view
+ * - Consumers of the whole queue take from the partitions round-robin, one task at a time
+ *
+ * A backlog of one type only ever sits in its own partition, so it cannot hold up the others.
+ */
+public class TypePartitionedTaskQueue implements TaskQueue {
+
+    private static final ETaskType[] TYPES = ETaskType.values();
+
+    private final TaskQueue[] partitions = new TaskQueue[TYPES.length];
+    private final AtomicInteger nextPartition = new AtomicInteger();
+
+    // Only whole-queue consumers that found every partition empty wait here
+    private final ReentrantLock waitLock = new ReentrantLock();
+    private final Condition notEmpty = waitLock.newCondition();
+    private final AtomicInteger waitingConsumers = new AtomicInteger(0);
+
+    public TypePartitionedTaskQueue(Supplier<TaskQueue> partitionFactory) {
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = partitionFactory.get();
+        }
+    }
+
+    @Override
+    public boolean offer(Task task) {
+        boolean accepted = partitionOf(task).offer(task);
+        signalIfWaiting();
+        return accepted;
+    }
+
+    @Override
+    public int offerAll(Collection<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return 0;
+        }
+        // Partitions are unbounded, so grouping by type keeps every task accepted
+        Map<ETaskType, List<Task>> byType = new EnumMap<>(ETaskType.class);
+        for (Task task : tasks) {
+            byType.computeIfAbsent(ETaskType.fromTaskName(task.getName()), type -> new ArrayList<>()).add(task);
+        }
+        int accepted = 0;
+        for (Map.Entry<ETaskType, List<Task>> group : byType.entrySet()) {
+            accepted += partition(group.getKey()).offerAll(group.getValue());
+        }
+        signalIfWaiting();
+        return accepted;
+    }
+
+    @Override
+    public boolean requeue(Task task) {
+        boolean accepted = partitionOf(task).requeue(task);
+        signalIfWaiting();
+        return accepted;
+    }
+
+    @Override
+    public Task poll() {
+        int start = Math.floorMod(nextPartition.getAndIncrement(), TYPES.length);
+        for (int i = 0; i < TYPES.length; i++) {
+            Task task = partitions[(start + i) % TYPES.length].poll();
+            if (task != null) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Task poll(long timeout, TimeUnit unit) throws InterruptedException {
+        Task task = poll();
+        if (task != null) {
+            return task;
+        }
+
+        long nanos = unit.toNanos(timeout);
+        waitLock.lockInterruptibly();
+        waitingConsumers.incrementAndGet();
+        try {
+            // Re-check after registering as a waiter so a concurrent offer cannot be missed
+            while ((task = poll()) == null) {
+                if (nanos <= 0L) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return task;
+        } finally {
+            waitingConsumers.decrementAndGet();
+            waitLock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Task> sink, int maxElements) {
+        int drained = 0;
+        Task task;
+        while (drained < maxElements && (task = poll()) != null) {
+            sink.add(task);
+            drained++;
+        }
+        return drained;
+    }
+
+    @Override
+    public Task pollLeastUrgent() {
+        // Compare each partition's candidate in place and only remove from the partition that wins
+        TaskQueue leastUrgentPartition = leastUrgentPartition();
+        if (leastUrgentPartition != null) {
+            Task task = leastUrgentPartition.pollLeastUrgent();
+            if (task != null) {
+                return task;
+            }
+        }
+        // A consumer emptied the chosen partition first, or the partitions cannot peek: take from any
+        for (TaskQueue partition : partitions) {
+            Task task = partition.pollLeastUrgent();
+            if (task != null) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Task peekLeastUrgent() {
+        TaskQueue leastUrgentPartition = leastUrgentPartition();
+        return leastUrgentPartition != null ? leastUrgentPartition.peekLeastUrgent() : null;
+    }
+
+    private TaskQueue leastUrgentPartition() {
+        Task leastUrgent = null;
+        TaskQueue leastUrgentPartition = null;
+        Comparator<? super Task> comparator = comparator();
+        for (TaskQueue partition : partitions) {
+            Task candidate = partition.peekLeastUrgent();
+            if (candidate != null && (leastUrgent == null || compare(comparator, candidate, leastUrgent) > 0)) {
+                leastUrgent = candidate;
+                leastUrgentPartition = partition;
+            }
+        }
+        return leastUrgentPartition;
+    }
+
+    @Override
+    public Comparator<? super Task> comparator() {
+        return partitions[0].comparator();
+    }
+
+    @Override
+    public TaskQueue partition(ETaskType type) {
+        return partitions[type.ordinal()];
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (TaskQueue partition : partitions) {
+            size += partition.size();
+        }
+        return size;
+    }
+
+    private TaskQueue partitionOf(Task task) {
+        return partition(ETaskType.fromTaskName(task.getName()));
+    }
+
+    private static int compare(Comparator<? super Task> comparator, Task a, Task b) {
+        return comparator != null ? comparator.compare(a, b) : a.compareTo(b);
+    }
+
+    private void signalIfWaiting() {
+        if (waitingConsumers.get() > 0) {
+            waitLock.lock();
+            try {
+                notEmpty.signalAll();
+            } finally {
+                waitLock.unlock();
+            }
+        }
+    }
+}
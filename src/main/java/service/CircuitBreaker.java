@@ -0,0 +1,172 @@
+package service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Failure-rate circuit breaker for one downstream (one task type)
+ * - CLOSED: every attempt runs; outcomes go into a window of the last windowSize attempts, and once it holds
+ *   minimumCalls outcomes a failure rate at or above the threshold opens the breaker
+ * - OPEN: no attempt runs until openDuration has passed, then the breaker turns HALF_OPEN
+ * - HALF_OPEN: up to halfOpenProbes attempts run as probes; all of them succeeding closes the breaker,
+ *   any failure opens it again. Probes with no outcome (dropped before running) are re-issued after openDuration.
+ *
+ * The CLOSED check in tryAcquirePermission is a single volatile read; everything else synchronizes on the breaker.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationNanos;
+    private final int halfOpenProbes;
+
+    private volatile State state = State.CLOSED;
+
+    // Guarded by this
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+    private long stateChangedNanos = System.nanoTime();
+    private int probesIssued;
+    private int probeSuccesses;
+
+    private final LongAdder openedCount = new LongAdder();
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold,
+                          Duration openDuration, int halfOpenProbes) {
+        if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize || halfOpenProbes < 1) {
+            throw new IllegalArgumentException("Need 1 <= minimumCalls <= windowSize and halfOpenProbes >= 1");
+        }
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+            throw new IllegalArgumentException("failureRateThreshold must be in (0, 1]");
+        }
+        this.name = name;
+        this.window = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.halfOpenProbes = halfOpenProbes;
+    }
+
+    /**
+     * @return true if an attempt may run now; in HALF_OPEN a true result uses up one probe
+     */
+    public boolean tryAcquirePermission() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (state == State.OPEN) {
+                if (now - stateChangedNanos < openDurationNanos) {
+                    return false;
+                }
+                transitionTo(State.HALF_OPEN, now);
+            } else if (state == State.HALF_OPEN
+                    && probesIssued >= halfOpenProbes && now - stateChangedNanos >= openDurationNanos) {
+                // Probes went missing without an outcome, issue a fresh set
+                transitionTo(State.HALF_OPEN, now);
+            }
+            if (state == State.CLOSED) {
+                return true;
+            }
+            if (probesIssued < halfOpenProbes) {
+                probesIssued++;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    public synchronized void recordSuccess() {
+        switch (state) {
+            case CLOSED -> record(false);
+            case HALF_OPEN -> {
+                if (++probeSuccesses >= halfOpenProbes) {
+                    transitionTo(State.CLOSED, System.nanoTime());
+                }
+            }
+            case OPEN -> {
+                // Outcome of an attempt started before the breaker opened
+            }
+        }
+    }
+
+    public synchronized void recordFailure() {
+        switch (state) {
+            case CLOSED -> {
+                record(true);
+                if (windowCount >= minimumCalls && windowFailures >= failureRateThreshold * windowCount) {
+                    transitionTo(State.OPEN, System.nanoTime());
+                }
+            }
+            case HALF_OPEN -> transitionTo(State.OPEN, System.nanoTime());
+            case OPEN -> {
+                // Outcome of an attempt started before the breaker opened
+            }
+        }
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void transitionTo(State next, long now) {
+        State previous = state;
+        stateChangedNanos = now;
+        probesIssued = 0;
+        probeSuccesses = 0;
+        if (next == State.OPEN) {
+            openedCount.increment();
+            if (previous == State.HALF_OPEN) {
+                log.warn("Circuit breaker {} OPEN again, a probe failed", name);
+            } else {
+                log.warn("Circuit breaker {} OPEN after {} of {} attempts failed, parking its tasks for {} ms",
+                        name, windowFailures, windowCount, openDurationNanos / 1_000_000);
+            }
+        } else if (next == State.CLOSED) {
+            windowIndex = 0;
+            windowCount = 0;
+            windowFailures = 0;
+            log.info("Circuit breaker {} CLOSED, {} probes succeeded", name, halfOpenProbes);
+        } else if (previous != next) {
+            log.info("Circuit breaker {} HALF_OPEN, letting {} probes through", name, halfOpenProbes);
+        }
+        state = next;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Number of times the breaker has opened, including re-opens after a failed probe
+     */
+    public long getOpenedCount() {
+        return openedCount.sum();
+    }
+}
@@ -0,0 +1,41 @@
+package service;
+
+import model.ETaskType;
+import model.Task;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * One CircuitBreaker per task type, created up front with the same settings
+ * Workers report attempt outcomes here; the CircuitBreakingTaskQueue asks it which types may be handed out.
+ */
+public class CircuitBreakerRegistry {
+
+    private final Map<ETaskType, CircuitBreaker> breakers = new EnumMap<>(ETaskType.class);
+
+    public CircuitBreakerRegistry(int windowSize, int minimumCalls, double failureRateThreshold,
+                                  Duration openDuration, int halfOpenProbes) {
+        for (ETaskType type : ETaskType.values()) {
+            breakers.put(type, new CircuitBreaker(type.name(), windowSize, minimumCalls, failureRateThreshold,
+                    openDuration, halfOpenProbes));
+        }
+    }
+
+    public CircuitBreaker forType(ETaskType type) {
+        return breakers.get(type);
+    }
+
+    public CircuitBreaker forTask(Task task) {
+        return forType(ETaskType.fromTaskName(task.getName()));
+    }
+
+    public void recordSuccess(Task task) {
+        forTask(task).recordSuccess();
+    }
+
+    public void recordFailure(Task task) {
+        forTask(task).recordFailure();
+    }
+}
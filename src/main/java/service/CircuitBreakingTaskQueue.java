@@ -0,0 +1,281 @@
+package service;
+
+import model.ETaskType;
+import model.Task;
+import queue.TaskQueue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * TaskQueue decorator that keeps tasks of a type whose circuit breaker is open away from the workers
+ * - A task taken off the queue while its breaker refuses it is parked in a per-type holding queue and the
+ *   consumer moves on to the next task, so worker time goes to the types that can make progress
+ * - Every consumer call first checks the parked types: once a breaker is HALF_OPEN its parked tasks are
+ *   handed out one per probe, once it is CLOSED they all go back into the queue in priority order
+ * - Parked tasks count towards size(), so the queue is not seen as empty while work is waiting on a breaker
+ *
+ * Sits directly on the base queue, under any bounded layer, so parked tasks keep their admission slot.
+ * At shutdown releaseAll() stops the parking and requeues the parked tasks so leftovers can be drained.
+ */
+public class CircuitBreakingTaskQueue implements TaskQueue {
+
+    private static final ETaskType[] TYPES = ETaskType.values();
+    // A consumer blocked on an empty queue wakes this often to hand out probes for parked tasks
+    private static final long RELEASE_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final TaskQueue delegate;
+    private final CircuitBreakerRegistry breakers;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final ConcurrentLinkedDeque<Task>[] parked = new ConcurrentLinkedDeque[TYPES.length];
+    private final AtomicInteger parkedCount = new AtomicInteger();
+    private volatile boolean released;
+
+    public CircuitBreakingTaskQueue(TaskQueue delegate, CircuitBreakerRegistry breakers) {
+        this.delegate = delegate;
+        this.breakers = breakers;
+        for (int i = 0; i < parked.length; i++) {
+            parked[i] = new ConcurrentLinkedDeque<>();
+        }
+    }
+
+    @Override
+    public boolean offer(Task task) {
+        return delegate.offer(task);
+    }
+
+    @Override
+    public int offerAll(Collection<Task> tasks) {
+        return delegate.offerAll(tasks);
+    }
+
+    @Override
+    public boolean requeue(Task task) {
+        return delegate.requeue(task);
+    }
+
+    @Override
+    public Task poll() {
+        return poll(delegate, null);
+    }
+
+    @Override
+    public Task poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return poll(delegate, null, unit.toNanos(timeout));
+    }
+
+    @Override
+    public int drainTo(Collection<? super Task> sink, int maxElements) {
+        return drainTo(delegate, null, sink, maxElements);
+    }
+
+    /**
+     * @param type the only type to release parked tasks of, or null for all
+     */
+    private Task poll(TaskQueue source, ETaskType type) {
+        Task task = releaseParked(type);
+        while (task == null && (task = source.poll()) != null && !admit(task)) {
+            task = null;
+        }
+        return task;
+    }
+
+    private Task poll(TaskQueue source, ETaskType type, long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (true) {
+            Task task = releaseParked(type);
+            if (task != null) {
+                return task;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            long wait = parkedCount.get() > 0 ? Math.min(remaining, RELEASE_CHECK_NANOS) : remaining;
+            task = source.poll(wait, TimeUnit.NANOSECONDS);
+            if (task != null && admit(task)) {
+                return task;
+            }
+        }
+    }
+
+    private int drainTo(TaskQueue source, ETaskType type, Collection<? super Task> sink, int maxElements) {
+        int drained = 0;
+        Task probe;
+        while (drained < maxElements && (probe = releaseParked(type)) != null) {
+            sink.add(probe);
+            drained++;
+        }
+        List<Task> batch = new ArrayList<>();
+        // Refill for what was parked, so a batch is not cut short by an open breaker
+        while (drained < maxElements && source.drainTo(batch, maxElements - drained) > 0) {
+            for (Task task : batch) {
+                if (admit(task)) {
+                    sink.add(task);
+                    drained++;
+                }
+            }
+            batch.clear();
+        }
+        return drained;
+    }
+
+    /**
+     * @return true if the task may go to a worker, false if it was parked
+     */
+    private boolean admit(Task task) {
+        if (released || breakers.forTask(task).tryAcquirePermission()) {
+            return true;
+        }
+        parked[ETaskType.fromTaskName(task.getName()).ordinal()].add(task);
+        parkedCount.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Requeues the parked tasks of closed breakers and takes one parked task for a half-open breaker's probe
+     * @return the probe, or null
+     */
+    private Task releaseParked(ETaskType only) {
+        if (parkedCount.get() == 0) {
+            return null;
+        }
+        for (ETaskType type : TYPES) {
+            ConcurrentLinkedDeque<Task> holding = parked[type.ordinal()];
+            if ((only != null && type != only) || holding.isEmpty()) {
+                continue;
+            }
+            CircuitBreaker breaker = breakers.forType(type);
+            if (released || breaker.getState() == CircuitBreaker.State.CLOSED) {
+                Task task;
+                while ((task = holding.poll()) != null) {
+                    parkedCount.decrementAndGet();
+                    delegate.requeue(task);
+                }
+            } else {
+                // Take the task before the permission, so a probe is never used up without a task to run
+                Task probe = holding.poll();
+                if (probe == null) {
+                    continue;
+                }
+                if (breaker.tryAcquirePermission()) {
+                    parkedCount.decrementAndGet();
+                    return probe;
+                }
+                holding.offerFirst(probe);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stops parking and puts every parked task back into the queue, whatever the breaker states
+     */
+    public void releaseAll() {
+        released = true;
+        releaseParked(null);
+    }
+
+    public int getParkedCount() {
+        return parkedCount.get();
+    }
+
+    public int getParkedCount(ETaskType type) {
+        return parked[type.ordinal()].size();
+    }
+
+    @Override
+    public Task pollLeastUrgent() {
+        return delegate.pollLeastUrgent();
+    }
+
+    @Override
+    public Task peekLeastUrgent() {
+        return delegate.peekLeastUrgent();
+    }
+
+    @Override
+    public Comparator<? super Task> comparator() {
+        return delegate.comparator();
+    }
+
+    @Override
+    public TaskQueue partition(ETaskType type) {
+        TaskQueue partition = delegate.partition(type);
+        return partition == delegate ? this : new PartitionView(partition, type);
+    }
+
+    @Override
+    public int size() {
+        return delegate.size() + parkedCount.get();
+    }
+
+    /**
+     * Per-type consumer view of a partitioned delegate; only releases the parked tasks of its own type
+     */
+    private final class PartitionView implements TaskQueue {
+        private final TaskQueue partition;
+        private final ETaskType type;
+
+        private PartitionView(TaskQueue partition, ETaskType type) {
+            this.partition = partition;
+            this.type = type;
+        }
+
+        @Override
+        public boolean offer(Task task) {
+            return CircuitBreakingTaskQueue.this.offer(task);
+        }
+
+        @Override
+        public int offerAll(Collection<Task> tasks) {
+            return CircuitBreakingTaskQueue.this.offerAll(tasks);
+        }
+
+        @Override
+        public boolean requeue(Task task) {
+            return partition.requeue(task);
+        }
+
+        @Override
+        public Task poll() {
+            return CircuitBreakingTaskQueue.this.poll(partition, type);
+        }
+
+        @Override
+        public Task poll(long timeout, TimeUnit unit) throws InterruptedException {
+            return CircuitBreakingTaskQueue.this.poll(partition, type, unit.toNanos(timeout));
+        }
+
+        @Override
+        public int drainTo(Collection<? super Task> sink, int maxElements) {
+            return CircuitBreakingTaskQueue.this.drainTo(partition, type, sink, maxElements);
+        }
+
+        @Override
+        public Task pollLeastUrgent() {
+            return partition.pollLeastUrgent();
+        }
+
+        @Override
+        public Task peekLeastUrgent() {
+            return partition.peekLeastUrgent();
+        }
+
+        @Override
+        public Comparator<? super Task> comparator() {
+            return partition.comparator();
+        }
+
+        @Override
+        public int size() {
+            return partition.size() + parked[type.ordinal()].size();
+        }
+    }
+}
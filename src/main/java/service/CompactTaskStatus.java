@@ -0,0 +1,39 @@
+package service;
+
+import model.ETaskStatus;
+import model.TaskStatusInfo;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Compact snapshot of a task that reached a terminal state
+ * Keeps the timestamp as epoch millis and drops the error message for completed tasks
+ */
+record CompactTaskStatus(byte statusOrdinal, short retryCount, long updatedAtMillis,
+                         String threadName, String errorMessage) {
+
+    private static final ETaskStatus[] STATUSES = ETaskStatus.values();
+
+    static CompactTaskStatus from(TaskStatusInfo info) {
+        String error = info.getStatus() == ETaskStatus.FAILED ? info.getErrorMessage() : null;
+        long updatedAt = info.getStatusUpdatedAt() != null
+                ? info.getStatusUpdatedAt().toEpochMilli()
+                : System.currentTimeMillis();
+        return new CompactTaskStatus(
+                (byte) info.getStatus().ordinal(),
+                (short) Math.min(info.getRetryCount(), Short.MAX_VALUE),
+                updatedAt,
+                info.getProcessingThreadName(),
+                error);
+    }
+
+    ETaskStatus status() {
+        return STATUSES[statusOrdinal];
+    }
+
+    TaskStatusInfo toStatusInfo(UUID taskId) {
+        return new TaskStatusInfo(taskId, status(), threadName,
+                Instant.ofEpochMilli(updatedAtMillis), retryCount, errorMessage);
+    }
+}
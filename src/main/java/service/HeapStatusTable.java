@@ -0,0 +1,51 @@
+package service;
+
+import model.TaskStatusInfo;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * StatusTable on a ConcurrentHashMap holding the immutable records themselves (the default)
+ */
+final class HeapStatusTable implements StatusTable {
+
+    private final ConcurrentHashMap<UUID, TaskStatusInfo> records = new ConcurrentHashMap<>();
+
+    @Override
+    public TaskStatusInfo get(UUID taskId) {
+        return records.get(taskId);
+    }
+
+    @Override
+    public TaskStatusInfo putIfAbsent(UUID taskId, TaskStatusInfo info) {
+        return records.putIfAbsent(taskId, info);
+    }
+
+    @Override
+    public boolean replace(UUID taskId, TaskStatusInfo expected, TaskStatusInfo next) {
+        return records.replace(taskId, expected, next);
+    }
+
+    @Override
+    public boolean remove(UUID taskId, TaskStatusInfo expected) {
+        return records.remove(taskId, expected);
+    }
+
+    @Override
+    public TaskStatusInfo compute(UUID taskId, BiFunction<UUID, TaskStatusInfo, TaskStatusInfo> remapping) {
+        return records.compute(taskId, remapping);
+    }
+
+    @Override
+    public int size() {
+        return records.size();
+    }
+
+    @Override
+    public void forEach(BiConsumer<UUID, TaskStatusInfo> action) {
+        records.forEach(action);
+    }
+}
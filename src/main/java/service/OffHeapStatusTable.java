@@ -0,0 +1,385 @@
+package service;
+
+import model.ETaskStatus;
+import model.TaskStatusInfo;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * StatusTable whose records live in direct memory, for backlogs too large to keep one object per task
+ * - Split into independently locked segments, each an open-addressing hash table (linear probing,
+ *   backward-shift deletion) in one direct ByteBuffer that doubles when it is 3/4 full
+ * - Fixed 48-byte record: id msb (long) | id lsb (long) | updated epoch seconds (long) | updated nanos (int)
+ *   | retry count (int) | thread name index (int) | status (byte) | used (byte) | padding
+ * - Thread names are interned once into a table capped at MAX_INTERNED_THREAD_NAMES, since an autoscaled
+ *   pool keeps minting new names; past the cap a name stays on the heap beside its record, in an array
+ *   a segment only allocates once it needs it
+ * - Error messages, which only failing tasks carry, stay on the heap in an array beside the records
+ *
+ * Records are rebuilt as TaskStatusInfo on every read, so replace and remove compare fields, not identity.
+ * Tables grow with the backlog's high-water mark and are not shrunk.
+ */
+final class OffHeapStatusTable implements StatusTable {
+
+    private static final int SEGMENT_COUNT = 16;
+    private static final int RECORD_SIZE = 48;
+    private static final int INITIAL_SEGMENT_CAPACITY = 1024;
+    private static final int MAX_INTERNED_THREAD_NAMES = 1024;
+    private static final int THREAD_NONE = -1;
+    private static final int THREAD_ON_HEAP = -2;
+    private static final ETaskStatus[] STATUSES = ETaskStatus.values();
+
+    private static final int MSB = 0;
+    private static final int LSB = 8;
+    private static final int UPDATED_SECONDS = 16;
+    private static final int UPDATED_NANOS = 24;
+    private static final int RETRY_COUNT = 28;
+    private static final int THREAD = 32;
+    private static final int STATUS = 36;
+    private static final int USED = 37;
+
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+    private final ConcurrentHashMap<String, Integer> threadIndexes = new ConcurrentHashMap<>();
+    // Guarded by threadIndexes' computeIfAbsent; read through the volatile array copy
+    private volatile String[] threadNames = new String[0];
+
+    OffHeapStatusTable() {
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(INITIAL_SEGMENT_CAPACITY);
+        }
+    }
+
+    @Override
+    public TaskStatusInfo get(UUID taskId) {
+        Segment segment = segmentFor(taskId);
+        synchronized (segment) {
+            int slot = segment.find(taskId);
+            return slot < 0 ? null : segment.read(taskId, slot);
+        }
+    }
+
+    @Override
+    public TaskStatusInfo putIfAbsent(UUID taskId, TaskStatusInfo info) {
+        int thread = threadIndex(info.getProcessingThreadName());
+        Segment segment = segmentFor(taskId);
+        synchronized (segment) {
+            int slot = segment.find(taskId);
+            if (slot >= 0) {
+                return segment.read(taskId, slot);
+            }
+            segment.insert(taskId, info, thread);
+            return null;
+        }
+    }
+
+    @Override
+    public boolean replace(UUID taskId, TaskStatusInfo expected, TaskStatusInfo next) {
+        int thread = threadIndex(next.getProcessingThreadName());
+        Segment segment = segmentFor(taskId);
+        synchronized (segment) {
+            int slot = segment.find(taskId);
+            if (slot < 0 || !segment.matches(slot, expected)) {
+                return false;
+            }
+            segment.write(slot, next, thread);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean remove(UUID taskId, TaskStatusInfo expected) {
+        Segment segment = segmentFor(taskId);
+        synchronized (segment) {
+            int slot = segment.find(taskId);
+            if (slot < 0 || !segment.matches(slot, expected)) {
+                return false;
+            }
+            segment.delete(slot);
+            return true;
+        }
+    }
+
+    @Override
+    public TaskStatusInfo compute(UUID taskId, BiFunction<UUID, TaskStatusInfo, TaskStatusInfo> remapping) {
+        Segment segment = segmentFor(taskId);
+        synchronized (segment) {
+            int slot = segment.find(taskId);
+            TaskStatusInfo current = slot < 0 ? null : segment.read(taskId, slot);
+            TaskStatusInfo next = remapping.apply(taskId, current);
+            if (next == null) {
+                if (slot >= 0) {
+                    segment.delete(slot);
+                }
+            } else if (slot >= 0) {
+                segment.write(slot, next, threadIndex(next.getProcessingThreadName()));
+            } else {
+                segment.insert(taskId, next, threadIndex(next.getProcessingThreadName()));
+            }
+            return next;
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.count;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Visits a copy of each segment, so the action runs without holding a segment lock
+     */
+    @Override
+    public void forEach(BiConsumer<UUID, TaskStatusInfo> action) {
+        for (Segment segment : segments) {
+            List<TaskStatusInfo> records;
+            synchronized (segment) {
+                records = new ArrayList<>(segment.count);
+                for (int slot = 0; slot < segment.capacity; slot++) {
+                    if (segment.isUsed(slot)) {
+                        records.add(segment.read(segment.idAt(slot), slot));
+                    }
+                }
+            }
+            records.forEach(info -> action.accept(info.getTaskId(), info));
+        }
+    }
+
+    /**
+     * Bytes of direct memory reserved by all segments
+     */
+    long getReservedBytes() {
+        long reserved = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                reserved += (long) segment.capacity * RECORD_SIZE;
+            }
+        }
+        return reserved;
+    }
+
+    private Segment segmentFor(UUID taskId) {
+        return segments[(hash(taskId) >>> 28) & (SEGMENT_COUNT - 1)];
+    }
+
+    private static int hash(UUID taskId) {
+        long h = taskId.getMostSignificantBits() ^ taskId.getLeastSignificantBits();
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    /**
+     * @return the interned index of the name, THREAD_NONE for null, THREAD_ON_HEAP once the table is full
+     */
+    private int threadIndex(String name) {
+        if (name == null) {
+            return THREAD_NONE;
+        }
+        Integer index = threadIndexes.get(name);
+        if (index != null) {
+            return index;
+        }
+        if (threadNames.length >= MAX_INTERNED_THREAD_NAMES) {
+            return THREAD_ON_HEAP;
+        }
+        index = threadIndexes.computeIfAbsent(name, key -> {
+            synchronized (threadIndexes) {
+                String[] names = threadNames;
+                if (names.length >= MAX_INTERNED_THREAD_NAMES) {
+                    return null;
+                }
+                String[] grown = new String[names.length + 1];
+                System.arraycopy(names, 0, grown, 0, names.length);
+                grown[names.length] = key;
+                threadNames = grown;
+                return names.length;
+            }
+        });
+        return index != null ? index : THREAD_ON_HEAP;
+    }
+
+    private final class Segment {
+        private ByteBuffer records;
+        private String[] errors;
+        private String[] threadNamesOnHeap; // null until a record needs it
+        private int capacity;
+        private int count;
+
+        private Segment(int capacity) {
+            allocate(capacity);
+        }
+
+        private void allocate(int newCapacity) {
+            records = ByteBuffer.allocateDirect(newCapacity * RECORD_SIZE);
+            errors = new String[newCapacity];
+            threadNamesOnHeap = null;
+            capacity = newCapacity;
+            count = 0;
+        }
+
+        int find(UUID taskId) {
+            long msb = taskId.getMostSignificantBits();
+            long lsb = taskId.getLeastSignificantBits();
+            int mask = capacity - 1;
+            for (int slot = hash(taskId) & mask; isUsed(slot); slot = (slot + 1) & mask) {
+                int base = slot * RECORD_SIZE;
+                if (records.getLong(base + MSB) == msb && records.getLong(base + LSB) == lsb) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        void insert(UUID taskId, TaskStatusInfo info, int thread) {
+            if ((count + 1) * 4 > capacity * 3) {
+                grow();
+            }
+            int mask = capacity - 1;
+            int slot = hash(taskId) & mask;
+            while (isUsed(slot)) {
+                slot = (slot + 1) & mask;
+            }
+            int base = slot * RECORD_SIZE;
+            records.putLong(base + MSB, taskId.getMostSignificantBits());
+            records.putLong(base + LSB, taskId.getLeastSignificantBits());
+            records.put(base + USED, (byte) 1);
+            write(slot, info, thread);
+            count++;
+        }
+
+        /**
+         * @param thread interned index of the record's thread name, THREAD_NONE or THREAD_ON_HEAP
+         */
+        void write(int slot, TaskStatusInfo info, int thread) {
+            int base = slot * RECORD_SIZE;
+            Instant updatedAt = info.getStatusUpdatedAt();
+            records.putLong(base + UPDATED_SECONDS, updatedAt == null ? Long.MIN_VALUE : updatedAt.getEpochSecond());
+            records.putInt(base + UPDATED_NANOS, updatedAt == null ? 0 : updatedAt.getNano());
+            records.putInt(base + RETRY_COUNT, info.getRetryCount());
+            records.putInt(base + THREAD, thread);
+            records.put(base + STATUS, (byte) info.getStatus().ordinal());
+            errors[slot] = info.getErrorMessage();
+            if (thread == THREAD_ON_HEAP) {
+                if (threadNamesOnHeap == null) {
+                    threadNamesOnHeap = new String[capacity];
+                }
+                threadNamesOnHeap[slot] = info.getProcessingThreadName();
+            } else if (threadNamesOnHeap != null) {
+                threadNamesOnHeap[slot] = null;
+            }
+        }
+
+        String threadName(int slot) {
+            int thread = records.getInt(slot * RECORD_SIZE + THREAD);
+            return switch (thread) {
+                case THREAD_NONE -> null;
+                case THREAD_ON_HEAP -> threadNamesOnHeap[slot];
+                default -> threadNames[thread];
+            };
+        }
+
+        TaskStatusInfo read(UUID taskId, int slot) {
+            int base = slot * RECORD_SIZE;
+            long seconds = records.getLong(base + UPDATED_SECONDS);
+            Instant updatedAt = seconds == Long.MIN_VALUE
+                    ? null
+                    : Instant.ofEpochSecond(seconds, records.getInt(base + UPDATED_NANOS));
+            return new TaskStatusInfo(taskId, STATUSES[records.get(base + STATUS)],
+                    threadName(slot), updatedAt,
+                    records.getInt(base + RETRY_COUNT), errors[slot]);
+        }
+
+        boolean matches(int slot, TaskStatusInfo expected) {
+            int base = slot * RECORD_SIZE;
+            Instant updatedAt = expected.getStatusUpdatedAt();
+            return records.get(base + STATUS) == expected.getStatus().ordinal()
+                    && records.getInt(base + RETRY_COUNT) == expected.getRetryCount()
+                    && records.getLong(base + UPDATED_SECONDS) == (updatedAt == null ? Long.MIN_VALUE : updatedAt.getEpochSecond())
+                    && records.getInt(base + UPDATED_NANOS) == (updatedAt == null ? 0 : updatedAt.getNano())
+                    && Objects.equals(threadName(slot), expected.getProcessingThreadName())
+                    && Objects.equals(errors[slot], expected.getErrorMessage());
+        }
+
+        /**
+         * Backward-shift deletion: moves later records of the probe run into the gap, so no tombstones pile up
+         */
+        void delete(int slot) {
+            int mask = capacity - 1;
+            int gap = slot;
+            for (int next = (gap + 1) & mask; isUsed(next); next = (next + 1) & mask) {
+                int home = hash(idAt(next)) & mask;
+                // Move the record if its home slot is not in the cyclic range (gap, next]
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    copy(next, gap);
+                    gap = next;
+                }
+            }
+            records.put(gap * RECORD_SIZE + USED, (byte) 0);
+            errors[gap] = null;
+            if (threadNamesOnHeap != null) {
+                threadNamesOnHeap[gap] = null;
+            }
+            count--;
+        }
+
+        private void copy(int from, int to) {
+            records.put(to * RECORD_SIZE, records, from * RECORD_SIZE, RECORD_SIZE);
+            errors[to] = errors[from];
+            if (threadNamesOnHeap != null) {
+                threadNamesOnHeap[to] = threadNamesOnHeap[from];
+            }
+        }
+
+        boolean isUsed(int slot) {
+            return records.get(slot * RECORD_SIZE + USED) != 0;
+        }
+
+        UUID idAt(int slot) {
+            int base = slot * RECORD_SIZE;
+            return new UUID(records.getLong(base + MSB), records.getLong(base + LSB));
+        }
+
+        private void grow() {
+            ByteBuffer oldRecords = records;
+            String[] oldErrors = errors;
+            String[] oldThreadNames = threadNamesOnHeap;
+            int oldCapacity = capacity;
+            allocate(oldCapacity * 2);
+            int mask = capacity - 1;
+            for (int from = 0; from < oldCapacity; from++) {
+                int fromBase = from * RECORD_SIZE;
+                if (oldRecords.get(fromBase + USED) == 0) {
+                    continue;
+                }
+                UUID taskId = new UUID(oldRecords.getLong(fromBase + MSB), oldRecords.getLong(fromBase + LSB));
+                int slot = hash(taskId) & mask;
+                while (isUsed(slot)) {
+                    slot = (slot + 1) & mask;
+                }
+                records.put(slot * RECORD_SIZE, oldRecords, fromBase, RECORD_SIZE);
+                errors[slot] = oldErrors[from];
+                if (oldThreadNames != null && oldThreadNames[from] != null) {
+                    if (threadNamesOnHeap == null) {
+                        threadNamesOnHeap = new String[capacity];
+                    }
+                    threadNamesOnHeap[slot] = oldThreadNames[from];
+                }
+                count++;
+            }
+        }
+    }
+}
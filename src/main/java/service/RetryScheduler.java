@@ -0,0 +1,147 @@
+package service;
+
+import lombok.extern.slf4j.Slf4j;
+import model.Task;
+import queue.TaskQueue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Holds failed tasks until their retry deadline, then re-enqueues them
+ * Delay per attempt is exponential backoff with jitter:
+ *   ceiling = min(maxDelay, baseDelay * 2^(attempt - 1))
+ *   delay   = ceiling / 2 + random(0, ceiling / 2)
+ * Retry counts themselves stay in TaskStatusTracker.
+ */
+@Slf4j
+public class RetryScheduler {
+
+    private final DelayQueue<ScheduledRetry> pendingRetries = new DelayQueue<>();
+    private final TaskQueue targetQueue;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private volatile Thread dispatcherThread;
+
+    public RetryScheduler(TaskQueue targetQueue, Duration baseDelay, Duration maxDelay) {
+        if (baseDelay.isNegative() || baseDelay.isZero() || maxDelay.compareTo(baseDelay) < 0) {
+            throw new IllegalArgumentException("Require 0 < baseDelay <= maxDelay");
+        }
+        this.targetQueue = targetQueue;
+        this.baseDelayMillis = baseDelay.toMillis();
+        this.maxDelayMillis = maxDelay.toMillis();
+    }
+
+    public synchronized void start() {
+        if (dispatcherThread != null) {
+            return;
+        }
+        Thread thread = new Thread(this::dispatchDueRetries, "RetryScheduler");
+        thread.setDaemon(true);
+        thread.start();
+        dispatcherThread = thread;
+        log.info("RetryScheduler started - base delay {} ms, max delay {} ms", baseDelayMillis, maxDelayMillis);
+    }
+
+    /**
+     * Schedules a task for re-enqueue after the backoff for the given attempt (1-based)
+     * @return the chosen delay in milliseconds
+     */
+    public long schedule(Task task, int attempt) {
+        return schedule(task, attempt, null);
+    }
+
+    /**
+     * Same backoff, but the due task is handed to the given target instead of the queue
+     * (work-stealing workers keep their retries in their local run queue)
+     * @param target receives the task once its backoff expired, null for the target queue
+     */
+    public long schedule(Task task, int attempt, Consumer<Task> target) {
+        long delayMillis = computeBackoffMillis(attempt);
+        pendingRetries.put(new ScheduledRetry(task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis),
+                target));
+        return delayMillis;
+    }
+
+    public int getPendingCount() {
+        return pendingRetries.size();
+    }
+
+    /**
+     * Stops the dispatcher and returns the retries that were still waiting for their deadline
+     */
+    public synchronized List<Task> shutdown() {
+        if (dispatcherThread != null) {
+            dispatcherThread.interrupt();
+            try {
+                dispatcherThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            dispatcherThread = null;
+        }
+
+        // The iterator also sees entries whose delay has not expired yet (drainTo would skip them)
+        List<ScheduledRetry> remaining = new ArrayList<>(pendingRetries);
+        pendingRetries.clear();
+
+        List<Task> tasks = new ArrayList<>(remaining.size());
+        remaining.forEach(retry -> tasks.add(retry.task));
+        log.info("RetryScheduler stopped with {} pending retries", tasks.size());
+        return tasks;
+    }
+
+    long computeBackoffMillis(int attempt) {
+        int exponent = Math.max(0, Math.min(attempt - 1, 30));
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << exponent);
+        long half = ceiling / 2;
+        return half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+    }
+
+    private void dispatchDueRetries() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                ScheduledRetry retry = pendingRetries.take();
+                if (retry.target != null) {
+                    retry.target.accept(retry.task);
+                } else {
+                    targetQueue.requeue(retry.task);
+                }
+                log.debug("RetryScheduler re-queued task {}", retry.task.getName());
+            }
+        } catch (InterruptedException e) {
+            log.debug("RetryScheduler dispatcher interrupted, stopping...");
+        }
+    }
+
+    private static final class ScheduledRetry implements Delayed {
+        private final Task task;
+        private final long readyAtNanos;
+        private final Consumer<Task> target;
+
+        private ScheduledRetry(Task task, long readyAtNanos, Consumer<Task> target) {
+            this.task = task;
+            this.readyAtNanos = readyAtNanos;
+            this.target = target;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(readyAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other instanceof ScheduledRetry retry) {
+                return Long.compare(readyAtNanos, retry.readyAtNanos);
+            }
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
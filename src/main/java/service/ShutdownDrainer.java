@@ -0,0 +1,106 @@
+package service;
+
+import lombok.extern.slf4j.Slf4j;
+import model.ETaskStatus;
+import queue.TaskQueue;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Waits for the system to go quiescent once producers have stopped, instead of sleeping a fixed time
+ * Quiescent means nothing queued, no retry waiting in the RetryScheduler and no task in a non-terminal
+ * status (SUBMITTED, PROCESSING, RETRYING) in the tracker, which covers tasks a worker holds.
+ *
+ * Terminal transitions wake the waiter through a status listener; a short re-check interval covers the
+ * changes that are not status transitions (a retry moving from the scheduler to the queue). The counters
+ * are read one after another, so the state must be seen quiescent on two consecutive checks.
+ */
+@Slf4j
+public class ShutdownDrainer {
+
+    private static final long RECHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long CONFIRM_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final TaskQueue taskQueue;
+    private final RetryScheduler retryScheduler;
+    private final TaskStatusTracker statusTracker;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition progress = lock.newCondition();
+    private volatile boolean draining;
+
+    public ShutdownDrainer(TaskQueue taskQueue, RetryScheduler retryScheduler, TaskStatusTracker statusTracker) {
+        this.taskQueue = taskQueue;
+        this.retryScheduler = retryScheduler;
+        this.statusTracker = statusTracker;
+        statusTracker.addStatusListener((taskId, status, retryCount) -> {
+            if (status == ETaskStatus.COMPLETED || status == ETaskStatus.FAILED) {
+                signalProgress();
+            }
+        });
+    }
+
+    /**
+     * Blocks until the system is quiescent or the deadline passes
+     * @return true if quiescent, false if work was still outstanding at the deadline
+     */
+    public boolean awaitQuiescence(Duration deadline) throws InterruptedException {
+        long startNanos = System.nanoTime();
+        long remainingNanos = deadline.toNanos();
+        log.info("Draining: {} queued, {} pending retries, {} unfinished tasks",
+                taskQueue.size(), retryScheduler.getPendingCount(), getOutstandingCount());
+
+        lock.lock();
+        draining = true;
+        try {
+            while (true) {
+                if (isQuiescent()) {
+                    // Confirm, so a task between two counters is not mistaken for an idle system
+                    progress.awaitNanos(CONFIRM_NANOS);
+                    if (isQuiescent()) {
+                        log.info("System quiescent after {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+                        return true;
+                    }
+                }
+                if (remainingNanos <= 0) {
+                    log.warn("Drain deadline of {} ms reached: {} queued, {} pending retries, {} unfinished tasks",
+                            deadline.toMillis(), taskQueue.size(), retryScheduler.getPendingCount(), getOutstandingCount());
+                    return false;
+                }
+                progress.awaitNanos(Math.min(remainingNanos, RECHECK_NANOS));
+                remainingNanos = deadline.toNanos() - (System.nanoTime() - startNanos);
+            }
+        } finally {
+            draining = false;
+            lock.unlock();
+        }
+    }
+
+    public boolean isQuiescent() {
+        return taskQueue.isEmpty() && retryScheduler.getPendingCount() == 0 && getOutstandingCount() == 0;
+    }
+
+    /**
+     * Tasks that are queued, held by a worker or waiting for a retry, as counted by the tracker
+     */
+    public long getOutstandingCount() {
+        return statusTracker.countTasksWithStatus(ETaskStatus.SUBMITTED)
+                + statusTracker.countTasksWithStatus(ETaskStatus.PROCESSING)
+                + statusTracker.countTasksWithStatus(ETaskStatus.RETRYING);
+    }
+
+    private void signalProgress() {
+        // Skip the lock when nobody is draining, this runs on every terminal transition
+        if (draining) {
+            lock.lock();
+            try {
+                progress.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
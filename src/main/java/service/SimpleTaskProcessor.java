@@ -5,16 +5,15 @@ import model.Task;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Random;
-
 public class SimpleTaskProcessor {
     private static final Logger logger = LoggerFactory.getLogger(SimpleTaskProcessor.class);
     private final TaskStatusTracker statusTracker;
-    private final Random random;
+    // Priority 1: 200-400ms, Priority 5: 600-800ms, 10% failures
+    private final TaskHandler handler = new SimulatedTaskHandler(100, 100, 200, 1.0, 10,
+            "Simulated processing failure");
 
     public SimpleTaskProcessor(TaskStatusTracker statusTracker) {
         this.statusTracker = statusTracker;
-        this.random = new Random();
     }
 
     public void processTask(Task task) {
@@ -26,16 +25,7 @@ public class SimpleTaskProcessor {
         statusTracker.updateTaskStatus(task.getId(), ETaskStatus.PROCESSING, currentThread);
 
         try {
-            // Simulate processing time based on priority
-            int processingTime = calculateProcessingTime(task.getPriority());
-            logger.info("Processing task {} for {} ms", task.getName(), processingTime);
-
-            Thread.sleep(processingTime);
-
-            // Simulate occasional failures (10% chance)
-            if (random.nextInt(100) < 10) {
-                throw new RuntimeException("Simulated processing failure");
-            }
+            handler.handle(task);
 
             // Success!
             statusTracker.updateTaskStatus(task.getId(), ETaskStatus.COMPLETED, currentThread);
@@ -50,12 +40,4 @@ public class SimpleTaskProcessor {
             logger.error("Task processing failed: {} - Error: {}", task.getName(), e.getMessage());
         }
     }
-
-    private int calculateProcessingTime(int priority) {
-        // Higher priority (lower number) = faster processing
-        // Priority 1: 100-300ms, Priority 5: 500-1000ms
-        int baseTime = 100 + (priority * 100);
-        int variance = 200;
-        return baseTime + random.nextInt(variance);
-    }
 }
@@ -0,0 +1,68 @@
+package service;
+
+import lombok.extern.slf4j.Slf4j;
+import model.Task;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stand-in for real work: sleeps for a priority-dependent time and fails at a configured rate
+ * Processing time is (base + priority * perPriority + random(variance)) * timeScale milliseconds,
+ * so higher priority (lower number) tasks finish faster.
+ */
+@Slf4j
+public class SimulatedTaskHandler implements TaskHandler {
+
+    public static final int DEFAULT_FAILURE_PERCENT = 15;
+
+    private final int baseMillis;
+    private final int perPriorityMillis;
+    private final int varianceMillis;
+    private final double timeScale;
+    private final int failurePercent;
+    private final String failureMessage;
+
+    /**
+     * @param timeScale multiplier for the simulated processing time (0 disables the sleep)
+     * @param failurePercent chance in percent that an attempt fails
+     */
+    public SimulatedTaskHandler(int baseMillis, int perPriorityMillis, int varianceMillis,
+                                double timeScale, int failurePercent, String failureMessage) {
+        this.baseMillis = baseMillis;
+        this.perPriorityMillis = perPriorityMillis;
+        this.varianceMillis = varianceMillis;
+        this.timeScale = timeScale;
+        this.failurePercent = failurePercent;
+        this.failureMessage = failureMessage;
+    }
+
+    /**
+     * The worker's standard simulation: Priority 1: 350-650ms, Priority 5: 950-1250ms (before scaling)
+     */
+    public static SimulatedTaskHandler standard(double timeScale, int failurePercent) {
+        return new SimulatedTaskHandler(200, 150, 300, timeScale, failurePercent,
+                "Simulated processing failure - network timeout");
+    }
+
+    @Override
+    public void handle(Task task) throws InterruptedException {
+        int processingTime = processingTimeMillis(task.getPriority());
+        if (log.isDebugEnabled()) {
+            log.debug("Thread {} processing task {} for {} ms",
+                    Thread.currentThread().getName(), task.getName(), processingTime);
+        }
+
+        if (processingTime > 0) {
+            Thread.sleep(processingTime);
+        }
+
+        if (ThreadLocalRandom.current().nextInt(100) < failurePercent) {
+            throw new RuntimeException(failureMessage);
+        }
+    }
+
+    private int processingTimeMillis(int priority) {
+        int variance = varianceMillis > 0 ? ThreadLocalRandom.current().nextInt(varianceMillis) : 0;
+        return (int) ((baseMillis + priority * perPriorityMillis + variance) * timeScale);
+    }
+}
@@ -0,0 +1,35 @@
+package service;
+
+import model.TaskStatusInfo;
+
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * Live task status records, keyed by task id: the part of ConcurrentMap that TaskStatusTracker uses
+ * replace and remove compare the expected record with the stored one; for the heap table that is
+ * identity, for the off-heap table it is field equality, since records are rebuilt on every read.
+ */
+interface StatusTable {
+
+    TaskStatusInfo get(UUID taskId);
+
+    /**
+     * @return the record already stored, or null if the given one was added
+     */
+    TaskStatusInfo putIfAbsent(UUID taskId, TaskStatusInfo info);
+
+    boolean replace(UUID taskId, TaskStatusInfo expected, TaskStatusInfo next);
+
+    boolean remove(UUID taskId, TaskStatusInfo expected);
+
+    /**
+     * Atomically maps the current record (null if absent) to the new one; a null result removes the task
+     */
+    TaskStatusInfo compute(UUID taskId, BiFunction<UUID, TaskStatusInfo, TaskStatusInfo> remapping);
+
+    int size();
+
+    void forEach(BiConsumer<UUID, TaskStatusInfo> action);
+}
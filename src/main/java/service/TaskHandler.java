@@ -0,0 +1,13 @@
+package service;
+
+import model.Task;
+
+/**
+ * Processing logic for one task type, looked up in TaskHandlerRegistry by workers
+ * Called once per attempt; throwing marks the attempt as failed and lets the worker's retry logic take over.
+ */
+@FunctionalInterface
+public interface TaskHandler {
+
+    void handle(Task task) throws Exception;
+}
@@ -0,0 +1,35 @@
+package service;
+
+import model.ETaskType;
+import model.Task;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Maps each task type to the handler that processes it
+ * Handlers are registered at startup, before any worker starts, and only read afterwards.
+ * Types without a registered handler fall back to the default handler.
+ */
+public class TaskHandlerRegistry {
+
+    private final Map<ETaskType, TaskHandler> handlers = new EnumMap<>(ETaskType.class);
+    private final TaskHandler defaultHandler;
+
+    public TaskHandlerRegistry(TaskHandler defaultHandler) {
+        this.defaultHandler = defaultHandler;
+    }
+
+    public TaskHandlerRegistry register(ETaskType type, TaskHandler handler) {
+        handlers.put(type, handler);
+        return this;
+    }
+
+    public TaskHandler handlerFor(Task task) {
+        return handlerFor(ETaskType.fromTaskName(task.getName()));
+    }
+
+    public TaskHandler handlerFor(ETaskType type) {
+        return handlers.getOrDefault(type, defaultHandler);
+    }
+}
@@ -0,0 +1,15 @@
+package service;
+
+import model.ETaskStatus;
+
+import java.util.UUID;
+
+/**
+ * Callback for task status transitions recorded by TaskStatusTracker
+ * Invoked on the thread that made the transition, after the tracker has been updated.
+ */
+@FunctionalInterface
+public interface TaskStatusListener {
+
+    void onStatusChange(UUID taskId, ETaskStatus status, int retryCount);
+}
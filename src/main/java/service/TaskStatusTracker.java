@@ -1,61 +1,157 @@
 package service;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import model.ETaskStatus;
 import model.TaskStatusInfo;
 import prototype.MainApp;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Task Status Tracker with retry logic support
  * Tracks all task statuses including RETRYING and FAILED states
+ *
+ * In bounded mode, tasks that reach COMPLETED or FAILED leave the hot map and move
+ * into a compact terminal store with size and TTL eviction. Live tasks stay in the hot map.
+ *
+ * Status records are immutable and swapped with a compare-and-set on the map entry; updates follow the
+ * ETaskStatus state machine, and one that would leave a terminal status or skip a step is logged and ignored.
+ *
+ * With off-heap storage the live records are kept in direct memory (OffHeapStatusTable) instead of as
+ * one object per task, so a large backlog of waiting tasks does not grow the heap.
  */
 @Getter
 @Slf4j
 public class TaskStatusTracker {
 
-    private final ConcurrentHashMap<UUID, TaskStatusInfo> taskStatusMap;
+    @Getter(AccessLevel.NONE)
+    private final StatusTable taskStatusMap;
+    @Getter(AccessLevel.NONE)
+    private final TerminalStatusStore terminalStore;
+    @Getter(AccessLevel.NONE)
+    private final LongAdder[] statusCounters = newStatusCounters();
+    @Getter(AccessLevel.NONE)
+    private final List<TaskStatusListener> listeners = new CopyOnWriteArrayList<>();
+
+    private enum Change {
+        STATUS, STATUS_WITH_ERROR, RETRY, FINAL_FAILURE
+    }
 
     public TaskStatusTracker() {
-        taskStatusMap = new ConcurrentHashMap<>();
+        taskStatusMap = new HeapStatusTable();
+        terminalStore = null;
     }
 
-    public void updateTaskStatus(UUID taskId, ETaskStatus status, String threadName) {
-        TaskStatusInfo statusInfo = taskStatusMap.get(taskId);
+    /**
+     * Bounded mode: keeps at most terminalCapacity finished tasks, each for at most terminalTtl
+     */
+    public TaskStatusTracker(int terminalCapacity, Duration terminalTtl) {
+        this(terminalCapacity, terminalTtl, false);
+    }
+
+    /**
+     * @param offHeap keep live task records in direct memory instead of the heap
+     */
+    public TaskStatusTracker(int terminalCapacity, Duration terminalTtl, boolean offHeap) {
+        taskStatusMap = offHeap ? new OffHeapStatusTable() : new HeapStatusTable();
+        terminalStore = new TerminalStatusStore(terminalCapacity, terminalTtl);
+    }
+
+    public boolean isBounded() {
+        return terminalStore != null;
+    }
+
+    /**
+     * Bytes of direct memory reserved for live records, 0 unless they are kept off-heap
+     */
+    public long getOffHeapReservedBytes() {
+        return taskStatusMap instanceof OffHeapStatusTable table ? table.getReservedBytes() : 0;
+    }
+
+    /**
+     * Registers a callback for every status transition, e.g. to persist it
+     */
+    public void addStatusListener(TaskStatusListener listener) {
+        listeners.add(listener);
+    }
+
+    private static LongAdder[] newStatusCounters() {
+        LongAdder[] counters = new LongAdder[ETaskStatus.values().length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    /**
+     * @return false if the task's current status cannot move to the given one (the update is then ignored)
+     */
+    public boolean updateTaskStatus(UUID taskId, ETaskStatus status, String threadName) {
+        TaskStatusInfo statusInfo = apply(taskId, Change.STATUS, status, threadName, null, Instant.now());
         if (statusInfo == null) {
-            // Create new status info
-            statusInfo = new TaskStatusInfo(taskId, status, threadName);
-            taskStatusMap.put(taskId, statusInfo);
-        } else {
-            // Update existing status info
-            statusInfo.setStatus(status);
-            statusInfo.setProcessingThreadName(threadName);
-            statusInfo.setStatusUpdatedAt(java.time.Instant.now());
+            return false;
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Task {} status updated to {} by thread {}",
+                    shortId(taskId), status, threadName);
         }
 
-        log.info("Task {} status updated to {} by thread {}",
-                taskId.toString().substring(0, 8), status, threadName);
+        retireIfTerminal(taskId, statusInfo);
+        notifyListeners(taskId, status, statusInfo.getRetryCount());
+        return true;
     }
 
-    public void updateTaskStatusWithError(UUID taskId, ETaskStatus status, String threadName, String errorMessage) {
-        TaskStatusInfo statusInfo = taskStatusMap.get(taskId);
+    /**
+     * Grouped status update for a batch of tasks, logged as a single line
+     * @return number of tasks whose status changed; the others were in a status that cannot move to the given one
+     */
+    public int updateTaskStatuses(Collection<UUID> taskIds, ETaskStatus status, String threadName) {
+        Instant now = Instant.now();
+        int updated = 0;
+        for (UUID taskId : taskIds) {
+            TaskStatusInfo statusInfo = apply(taskId, Change.STATUS, status, threadName, null, now);
+            if (statusInfo == null) {
+                continue;
+            }
+            updated++;
+            retireIfTerminal(taskId, statusInfo);
+            notifyListeners(taskId, status, statusInfo.getRetryCount());
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("{} tasks status updated to {} by thread {}", updated, status, threadName);
+        }
+        return updated;
+    }
+
+    /**
+     * @return false if the task's current status cannot move to the given one (the update is then ignored)
+     */
+    public boolean updateTaskStatusWithError(UUID taskId, ETaskStatus status, String threadName, String errorMessage) {
+        TaskStatusInfo statusInfo = apply(taskId, Change.STATUS_WITH_ERROR, status, threadName, errorMessage, Instant.now());
         if (statusInfo == null) {
-            statusInfo = new TaskStatusInfo(taskId, status, threadName);
-            taskStatusMap.put(taskId, statusInfo);
-        } else {
-            statusInfo.setStatus(status);
-            statusInfo.setProcessingThreadName(threadName);
-            statusInfo.setStatusUpdatedAt(java.time.Instant.now());
+            return false;
         }
 
-        statusInfo.setErrorMessage(errorMessage);
+        if (log.isDebugEnabled()) {
+            log.debug("Task {} status updated to {} by thread {} - Error: {}",
+                    shortId(taskId), status, threadName, errorMessage);
+        }
 
-        log.error("Task {} status updated to {} by thread {} - Error: {}",
-                taskId.toString().substring(0, 8), status, threadName, errorMessage);
+        retireIfTerminal(taskId, statusInfo);
+        notifyListeners(taskId, status, statusInfo.getRetryCount());
+        return true;
     }
 
     public boolean canRetry(UUID taskId) {
@@ -63,68 +159,224 @@ public class TaskStatusTracker {
         return statusInfo != null && statusInfo.getRetryCount() < MainApp.getMaxRetryAttempts();
     }
 
+    /**
+     * Counts one more retry and moves the task to RETRYING, in one atomic step
+     */
     public void incrementRetryCount(UUID taskId, String threadName) {
-        TaskStatusInfo statusInfo = taskStatusMap.get(taskId);
-        if (statusInfo != null) {
-            statusInfo.incrementRetryCount();
-            statusInfo.setStatus(ETaskStatus.RETRYING);
-            statusInfo.setProcessingThreadName(threadName);
-
-            log.warn("Task {} retry count incremented to {} by thread {}",
-                    taskId.toString().substring(0, 8), statusInfo.getRetryCount(), threadName);
+        TaskStatusInfo statusInfo = apply(taskId, Change.RETRY, ETaskStatus.RETRYING, threadName, null, Instant.now());
+        if (statusInfo == null) {
+            return;
         }
+        if (log.isDebugEnabled()) {
+            log.debug("Task {} retry count incremented to {} by thread {}",
+                    shortId(taskId), statusInfo.getRetryCount(), threadName);
+        }
+        notifyListeners(taskId, ETaskStatus.RETRYING, statusInfo.getRetryCount());
     }
 
     public void markTaskAsPermanentlyFailed(UUID taskId, String threadName, String finalError) {
-        TaskStatusInfo statusInfo = taskStatusMap.get(taskId);
+        TaskStatusInfo statusInfo = apply(taskId, Change.FINAL_FAILURE, ETaskStatus.FAILED, threadName, finalError, Instant.now());
+
         if (statusInfo != null) {
-            statusInfo.setStatus(ETaskStatus.FAILED);
-            statusInfo.setProcessingThreadName(threadName);
-            statusInfo.setStatusUpdatedAt(java.time.Instant.now());
-            statusInfo.setErrorMessage(finalError);
+            if (log.isErrorEnabled()) {
+                log.error("Task {} permanently FAILED after {} attempts by thread {} - Final Error: {}",
+                        shortId(taskId), statusInfo.getRetryCount(), threadName, finalError);
+            }
 
-            log.error("Task {} permanently FAILED after {} attempts by thread {} - Final Error: {}",
-                    taskId.toString().substring(0, 8), statusInfo.getRetryCount(), threadName, finalError);
+            retireIfTerminal(taskId, statusInfo);
+            notifyListeners(taskId, ETaskStatus.FAILED, statusInfo.getRetryCount());
         }
     }
 
+    /**
+     * Compare-and-set of the task's record: reads the current record, builds the next one and swaps it in
+     * with replace(id, current, next), retrying if another thread changed the task in between
+     * The target status is counted before the swap and the old one released after it (undone if the swap
+     * fails), so the per-status totals never dip below the real value.
+     * A task that is not tracked yet is created by STATUS and STATUS_WITH_ERROR changes only; in bounded mode
+     * only by SUBMITTED (registration), and never while it sits in the terminal store, so a late update
+     * cannot revive a finished task or count it twice.
+     * @return the new record, or null if the task is unknown or its status cannot move to the target
+     */
+    private TaskStatusInfo apply(UUID taskId, Change change, ETaskStatus target, String threadName,
+                                 String errorMessage, Instant now) {
+        LongAdder targetCounter = statusCounters[target.ordinal()];
+        while (true) {
+            TaskStatusInfo current = taskStatusMap.get(taskId);
+            if (current == null) {
+                if (change == Change.RETRY || change == Change.FINAL_FAILURE) {
+                    return null;
+                }
+                if (terminalStore != null && target != ETaskStatus.SUBMITTED) {
+                    // Finished tasks have left the hot map; a late update must not bring them back
+                    log.warn("Task {} is {}, update to {} by thread {} ignored", shortId(taskId),
+                            terminalStore.get(taskId) != null ? "already finished" : "not registered", target, threadName);
+                    return null;
+                }
+                if (terminalStore != null && terminalStore.get(taskId) != null) {
+                    log.warn("Task {} already finished, re-registration by thread {} ignored", shortId(taskId), threadName);
+                    return null;
+                }
+                TaskStatusInfo created = new TaskStatusInfo(taskId, target, threadName, now, 0, errorMessage);
+                targetCounter.increment();
+                if (taskStatusMap.putIfAbsent(taskId, created) == null) {
+                    return created;
+                }
+                targetCounter.decrement();
+                continue;
+            }
+
+            ETaskStatus from = current.getStatus();
+            if (!from.canTransitionTo(target)) {
+                log.warn("Task {} cannot move from {} to {}, update by thread {} ignored",
+                        shortId(taskId), from, target, threadName);
+                return null;
+            }
+            TaskStatusInfo next = switch (change) {
+                case STATUS -> current.withStatus(target, threadName, now);
+                case STATUS_WITH_ERROR, FINAL_FAILURE -> current.withStatus(target, threadName, now, errorMessage);
+                case RETRY -> current.withRetry(threadName, now);
+            };
+            if (from == target) {
+                if (taskStatusMap.replace(taskId, current, next)) {
+                    return next;
+                }
+                continue;
+            }
+            targetCounter.increment();
+            if (taskStatusMap.replace(taskId, current, next)) {
+                statusCounters[from.ordinal()].decrement();
+                return next;
+            }
+            targetCounter.decrement();
+        }
+    }
+
+    /**
+     * Re-registers a task recovered from persistent storage, keeping its retry count
+     * Listeners are not notified, since the transition is already recorded where it came from
+     */
+    public void restoreTaskStatus(UUID taskId, ETaskStatus status, int retryCount, String threadName) {
+        taskStatusMap.compute(taskId, (id, existing) -> {
+            recordTransition(existing != null ? existing.getStatus() : null, status);
+            return new TaskStatusInfo(id, status, threadName, Instant.now(), retryCount, null);
+        });
+    }
+
+    /**
+     * Forgets a task that was registered but never made it into the queue (e.g. refused by admission control)
+     */
+    public void discardTask(UUID taskId) {
+        taskStatusMap.compute(taskId, (id, existing) -> {
+            if (existing != null) {
+                statusCounters[existing.getStatus().ordinal()].decrement();
+            }
+            return null;
+        });
+    }
+
     public TaskStatusInfo getTaskStatus(UUID taskId) {
-        return taskStatusMap.get(taskId);
+        TaskStatusInfo statusInfo = taskStatusMap.get(taskId);
+        if (statusInfo == null && terminalStore != null) {
+            CompactTaskStatus compact = terminalStore.get(taskId);
+            return compact != null ? compact.toStatusInfo(taskId) : null;
+        }
+        return statusInfo;
     }
 
     public int getTaskCount() {
-        return taskStatusMap.size();
+        return taskStatusMap.size() + (terminalStore != null ? terminalStore.size() : 0);
+    }
+
+    /**
+     * Number of tasks currently in the given status, read from the per-status counters
+     * Terminal counts are cumulative: evicting a finished task from the bounded store does not lower them
+     */
+    public long countTasksWithStatus(ETaskStatus status) {
+        return statusCounters[status.ordinal()].sum();
+    }
+
+    /**
+     * Constant-time snapshot of all per-status counters
+     */
+    public EnumMap<ETaskStatus, Long> getStatusCounts() {
+        EnumMap<ETaskStatus, Long> counts = new EnumMap<>(ETaskStatus.class);
+        for (ETaskStatus status : ETaskStatus.values()) {
+            counts.put(status, statusCounters[status.ordinal()].sum());
+        }
+        return counts;
+    }
+
+    /**
+     * Adjusts the per-status counters for restoreTaskStatus, called inside the map's compute
+     * The new state is counted before the old one is released, so totals never dip below the real value
+     */
+    private void recordTransition(ETaskStatus from, ETaskStatus to) {
+        if (from == to) {
+            return;
+        }
+        statusCounters[to.ordinal()].increment();
+        if (from != null) {
+            statusCounters[from.ordinal()].decrement();
+        }
+    }
+
+    private void notifyListeners(UUID taskId, ETaskStatus status, int retryCount) {
+        for (TaskStatusListener listener : listeners) {
+            listener.onStatusChange(taskId, status, retryCount);
+        }
+    }
+
+    /**
+     * Moves a finished task from the hot map into the compact terminal store (bounded mode only)
+     */
+    private void retireIfTerminal(UUID taskId, TaskStatusInfo statusInfo) {
+        if (terminalStore == null || !statusInfo.getStatus().isTerminal()) {
+            return;
+        }
+        terminalStore.put(taskId, CompactTaskStatus.from(statusInfo));
+        taskStatusMap.remove(taskId, statusInfo);
+    }
+
+    /**
+     * First 8 hex digits of the task UUID, only built by log statements that are enabled
+     */
+    private static String shortId(UUID taskId) {
+        return taskId.toString().substring(0, 8);
     }
 
     public void printStatusSummary() {
         log.info("=== TASK STATUS SUMMARY ===");
 
-        long submitted = taskStatusMap.values().stream()
-                .filter(status -> status.getStatus() == ETaskStatus.SUBMITTED).count();
-        long processing = taskStatusMap.values().stream()
-                .filter(status -> status.getStatus() == ETaskStatus.PROCESSING).count();
-        long completed = taskStatusMap.values().stream()
-                .filter(status -> status.getStatus() == ETaskStatus.COMPLETED).count();
-        long retrying = taskStatusMap.values().stream()
-                .filter(status -> status.getStatus() == ETaskStatus.RETRYING).count();
-        long failed = taskStatusMap.values().stream()
-                .filter(status -> status.getStatus() == ETaskStatus.FAILED).count();
+        EnumMap<ETaskStatus, Long> counts = getStatusCounts();
 
         log.info("SUBMITTED: {}, PROCESSING: {}, COMPLETED: {}, RETRYING: {}, FAILED: {}",
-                submitted, processing, completed, retrying, failed);
-        log.info("Total tasks tracked: {}", taskStatusMap.size());
+                counts.get(ETaskStatus.SUBMITTED), counts.get(ETaskStatus.PROCESSING),
+                counts.get(ETaskStatus.COMPLETED), counts.get(ETaskStatus.RETRYING),
+                counts.get(ETaskStatus.FAILED));
+        log.info("Total tasks tracked: {}", getTaskCount());
     }
 
     public void printFailedTasks() {
-        List<TaskStatusInfo> failedTasks = taskStatusMap.values().stream()
-                .filter(status -> status.getStatus() == ETaskStatus.FAILED)
-                .toList();
+        List<TaskStatusInfo> failedTasks = new ArrayList<>();
+        taskStatusMap.forEach((taskId, status) -> {
+            if (status.getStatus() == ETaskStatus.FAILED) {
+                failedTasks.add(status);
+            }
+        });
+        if (terminalStore != null) {
+            terminalStore.forEach((taskId, compact) -> {
+                if (compact.status() == ETaskStatus.FAILED) {
+                    failedTasks.add(compact.toStatusInfo(taskId));
+                }
+            });
+        }
 
         if (!failedTasks.isEmpty()) {
             log.info("=== FAILED TASKS DETAILS ===");
             failedTasks.forEach(task -> {
                 log.info("Task {}: Retries: {}, Last Error: {}, Last Thread: {}",
-                        task.getTaskId().toString().substring(0, 8),
+                        shortId(task.getTaskId()),
                         task.getRetryCount(),
                         task.getErrorMessage(),
                         task.getProcessingThreadName());
@@ -136,19 +388,24 @@ public class TaskStatusTracker {
 
     public void printAllTaskStatuses() {
         log.info("=== DETAILED TASK STATUSES ===");
-        taskStatusMap.forEach((taskId, status) -> {
-            String retryInfo = status.getRetryCount() > 0 ?
-                    String.format(" (Retries: %d)", status.getRetryCount()) : "";
-            String errorInfo = status.getErrorMessage() != null ?
-                    String.format(" [Error: %s]", status.getErrorMessage()) : "";
-
-            log.info("Task {}: {} (Thread: {}, Updated: {}){}{}",
-                    taskId.toString().substring(0, 8),
-                    status.getStatus(),
-                    status.getProcessingThreadName(),
-                    status.getStatusUpdatedAt(),
-                    retryInfo,
-                    errorInfo);
-        });
+        taskStatusMap.forEach(this::logTaskStatus);
+        if (terminalStore != null) {
+            terminalStore.forEach((taskId, compact) -> logTaskStatus(taskId, compact.toStatusInfo(taskId)));
+        }
+    }
+
+    private void logTaskStatus(UUID taskId, TaskStatusInfo status) {
+        String retryInfo = status.getRetryCount() > 0 ?
+                String.format(" (Retries: %d)", status.getRetryCount()) : "";
+        String errorInfo = status.getErrorMessage() != null ?
+                String.format(" [Error: %s]", status.getErrorMessage()) : "";
+
+        log.info("Task {}: {} (Thread: {}, Updated: {}){}{}",
+                shortId(taskId),
+                status.getStatus(),
+                status.getProcessingThreadName(),
+                status.getStatusUpdatedAt(),
+                retryInfo,
+                errorInfo);
     }
 }
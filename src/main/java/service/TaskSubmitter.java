@@ -0,0 +1,68 @@
+package service;
+
+import lombok.extern.slf4j.Slf4j;
+import model.ETaskStatus;
+import model.Task;
+import queue.TaskQueue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single entry point for producers to hand tasks to the system
+ * Registers SUBMITTED before the task becomes visible to workers, so a fast worker
+ * can never complete a task ahead of its submission record.
+ * When a bounded queue refuses a task its record is discarded again, and the caller
+ * gets the refusal back as a backpressure signal.
+ */
+@Slf4j
+public class TaskSubmitter {
+
+    private final TaskQueue taskQueue;
+    private final TaskStatusTracker statusTracker;
+    private final AtomicInteger totalTasksSubmitted;
+
+    public TaskSubmitter(TaskQueue taskQueue, TaskStatusTracker statusTracker, AtomicInteger totalTasksSubmitted) {
+        this.taskQueue = taskQueue;
+        this.statusTracker = statusTracker;
+        this.totalTasksSubmitted = totalTasksSubmitted;
+    }
+
+    /**
+     * @return false if the queue refused the task; the caller keeps it and should slow down
+     */
+    public boolean submit(Task task, String threadName) {
+        statusTracker.updateTaskStatus(task.getId(), ETaskStatus.SUBMITTED, threadName);
+        if (!taskQueue.offer(task)) {
+            statusTracker.discardTask(task.getId());
+            return false;
+        }
+        totalTasksSubmitted.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Bulk submission: one grouped tracker call, one queue insert and one counter bump per batch
+     * @return the number of tasks submitted; when short, the first N of the batch were accepted
+     */
+    public int submitAll(Collection<Task> tasks, String threadName) {
+        if (tasks.isEmpty()) {
+            return 0;
+        }
+        List<UUID> taskIds = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            taskIds.add(task.getId());
+        }
+
+        statusTracker.updateTaskStatuses(taskIds, ETaskStatus.SUBMITTED, threadName);
+        int accepted = taskQueue.offerAll(tasks);
+        for (int i = accepted; i < taskIds.size(); i++) {
+            statusTracker.discardTask(taskIds.get(i));
+        }
+        totalTasksSubmitted.addAndGet(accepted);
+        return accepted;
+    }
+}
@@ -0,0 +1,116 @@
+package service;
+
+import java.io.Serial;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Size- and time-bounded store for tasks in a terminal state (COMPLETED / FAILED)
+ * - Split into independently locked segments to keep contention low
+ * - Each segment evicts its oldest entry once it is over capacity
+ * - Entries older than the TTL are dropped on access and on insert
+ */
+class TerminalStatusStore {
+
+    private static final int SEGMENT_COUNT = 16;
+
+    private final Segment[] segments;
+    private final long ttlMillis;
+
+    TerminalStatusStore(int capacity, Duration ttl) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.ttlMillis = ttl.toMillis();
+        this.segments = new Segment[SEGMENT_COUNT];
+        int segmentCapacity = Math.max(1, (capacity + SEGMENT_COUNT - 1) / SEGMENT_COUNT);
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    void put(UUID taskId, CompactTaskStatus status) {
+        Segment segment = segmentFor(taskId);
+        synchronized (segment) {
+            segment.put(taskId, status);
+            segment.expire(System.currentTimeMillis() - ttlMillis);
+        }
+    }
+
+    CompactTaskStatus get(UUID taskId) {
+        Segment segment = segmentFor(taskId);
+        synchronized (segment) {
+            CompactTaskStatus status = segment.get(taskId);
+            if (status != null && isExpired(status, System.currentTimeMillis() - ttlMillis)) {
+                segment.remove(taskId);
+                return null;
+            }
+            return status;
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Visits a point-in-time copy of every segment, so callbacks never run under a segment lock
+     */
+    void forEach(BiConsumer<UUID, CompactTaskStatus> action) {
+        for (Segment segment : segments) {
+            List<Map.Entry<UUID, CompactTaskStatus>> entries;
+            synchronized (segment) {
+                entries = new ArrayList<>(segment.entrySet());
+            }
+            entries.forEach(entry -> action.accept(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    private Segment segmentFor(UUID taskId) {
+        int hash = taskId.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENT_COUNT - 1)];
+    }
+
+    private static boolean isExpired(CompactTaskStatus status, long cutoffMillis) {
+        return status.updatedAtMillis() < cutoffMillis;
+    }
+
+    /**
+     * Insertion-ordered map, so the eldest entry is also the first one to expire
+     */
+    private static final class Segment extends LinkedHashMap<UUID, CompactTaskStatus> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        private Segment(int capacity) {
+            super(Math.min(capacity, 1024), 0.75f, false);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, CompactTaskStatus> eldest) {
+            return size() > capacity;
+        }
+
+        private void expire(long cutoffMillis) {
+            Iterator<CompactTaskStatus> iterator = values().iterator();
+            while (iterator.hasNext() && isExpired(iterator.next(), cutoffMillis)) {
+                iterator.remove();
+            }
+        }
+    }
+}